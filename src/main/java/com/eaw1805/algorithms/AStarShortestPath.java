@@ -0,0 +1,246 @@
+package com.eaw1805.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * Point-to-point shortest path using the A* algorithm.
+ * The heuristic is the octile distance with diagonal moves costing the same as straight ones (i.e. the Chebyshev
+ * distance) multiplied by the minimum cost of entering any vertex of the graph. Since every step enters a vertex,
+ * the heuristic is admissible and consistent, so the estimated costs of the expanded cells never decrease and
+ * the same bucket queue as {@link DialShortestPath} can be used.
+ */
+public class AStarShortestPath {
+
+    /**
+     * The graph to search.
+     */
+    private final GridGraph graph;
+
+    /**
+     * The index of the target cell.
+     */
+    private final int target;
+
+    /**
+     * The lower bound of the cost of entering a cell.
+     */
+    private final int minCost;
+
+    /**
+     * The budget of the search, or null if the search is not limited.
+     */
+    private final SearchBudget budget;
+
+    /**
+     * The cost of the shortest path found to each cell.
+     */
+    private final int[] costs;
+
+    /**
+     * The number of edges of the shortest path found to each cell.
+     */
+    private final int[] hops;
+
+    /**
+     * The previous cell of the shortest path found to each cell.
+     */
+    private final int[] predecessors;
+
+    /**
+     * The number of cells expanded by the search.
+     */
+    private int totExpanded;
+
+    /**
+     * Default constructor.
+     *
+     * @param graph   the graph to search.
+     * @param source  the index of the starting cell.
+     * @param target  the index of the target cell.
+     * @param maxCost the maximum cost of the path.
+     */
+    public AStarShortestPath(final GridGraph graph,
+                             final int source,
+                             final int target,
+                             final int maxCost) {
+        this(graph, source, target, maxCost, null);
+    }
+
+    /**
+     * Constructor that stops the search when the budget runs out, in which case no path is found.
+     *
+     * @param graph   the graph to search.
+     * @param source  the index of the starting cell.
+     * @param target  the index of the target cell.
+     * @param maxCost the maximum cost of the path.
+     * @param budget  the budget of the search, or null if the search is not limited.
+     */
+    public AStarShortestPath(final GridGraph graph,
+                             final int source,
+                             final int target,
+                             final int maxCost,
+                             final SearchBudget budget) {
+        this.graph = graph;
+        this.target = target;
+        this.budget = budget;
+        minCost = graph.getMinCost();
+        costs = new int[graph.size()];
+        hops = new int[graph.size()];
+        predecessors = new int[graph.size()];
+        Arrays.fill(costs, DialShortestPath.UNREACHABLE);
+        Arrays.fill(predecessors, -1);
+
+        search(source, maxCost);
+    }
+
+    /**
+     * Estimate the cost of reaching the target from the cell.
+     *
+     * @param index the index of the cell.
+     * @return a lower bound of the cost.
+     */
+    private int estimate(final int index) {
+        final int diffX = Math.abs(graph.getX(index) - graph.getX(target));
+        final int diffY = Math.abs(graph.getY(index) - graph.getY(target));
+        return minCost * Math.max(diffX, diffY);
+    }
+
+    /**
+     * Expand the cells in increasing order of estimated cost until the target is reached.
+     *
+     * @param source  the index of the starting cell.
+     * @param maxCost the maximum cost of the path.
+     */
+    private void search(final int source, final int maxCost) {
+        // The estimated cost of a cell exceeds the one of its predecessor by at most twice the maximum edge weight
+        final int totBuckets = 2 * graph.getMaxCost() + 1;
+        final int[] bucketHead = new int[totBuckets];
+        final int[] next = new int[graph.size()];
+        final int[] prev = new int[graph.size()];
+        final boolean[] settled = new boolean[graph.size()];
+        Arrays.fill(bucketHead, -1);
+
+        costs[source] = 0;
+        link(bucketHead, next, prev, estimate(source) % totBuckets, source);
+        int pending = 1;
+
+        for (int estimated = estimate(source); pending > 0; estimated++) {
+            if (budget != null && budget.isExhausted()) {
+                break;
+            }
+
+            final int bucket = estimated % totBuckets;
+            while (bucketHead[bucket] >= 0) {
+                final int vertex = bucketHead[bucket];
+                unlink(bucketHead, next, prev, bucket, vertex);
+                pending--;
+                settled[vertex] = true;
+                totExpanded++;
+
+                if (vertex == target) {
+                    return;
+                }
+
+                for (int direction = 0; direction < GridGraph.DIRECTIONS; direction++) {
+                    if (!graph.hasEdge(vertex, direction)) {
+                        continue;
+                    }
+
+                    final int thatIndex = graph.neighbour(vertex, direction);
+                    if (settled[thatIndex]) {
+                        continue;
+                    }
+
+                    final int newCost = costs[vertex] + graph.getCost(thatIndex);
+                    if (newCost > maxCost || newCost >= costs[thatIndex]) {
+                        continue;
+                    }
+
+                    if (costs[thatIndex] == DialShortestPath.UNREACHABLE) {
+                        pending++;
+
+                    } else {
+                        unlink(bucketHead, next, prev, (costs[thatIndex] + estimate(thatIndex)) % totBuckets, thatIndex);
+                    }
+
+                    costs[thatIndex] = newCost;
+                    hops[thatIndex] = hops[vertex] + 1;
+                    predecessors[thatIndex] = vertex;
+                    link(bucketHead, next, prev, (newCost + estimate(thatIndex)) % totBuckets, thatIndex);
+                }
+            }
+        }
+
+        // The target was not reached
+        costs[target] = DialShortestPath.UNREACHABLE;
+    }
+
+    /**
+     * Insert the cell at the head of the bucket.
+     */
+    private static void link(final int[] bucketHead, final int[] next, final int[] prev,
+                             final int bucket, final int vertex) {
+        next[vertex] = bucketHead[bucket];
+        prev[vertex] = -1;
+        if (bucketHead[bucket] >= 0) {
+            prev[bucketHead[bucket]] = vertex;
+        }
+        bucketHead[bucket] = vertex;
+    }
+
+    /**
+     * Remove the cell from the bucket.
+     */
+    private static void unlink(final int[] bucketHead, final int[] next, final int[] prev,
+                               final int bucket, final int vertex) {
+        if (prev[vertex] >= 0) {
+            next[prev[vertex]] = next[vertex];
+
+        } else {
+            bucketHead[bucket] = next[vertex];
+        }
+
+        if (next[vertex] >= 0) {
+            prev[next[vertex]] = prev[vertex];
+        }
+    }
+
+    /**
+     * Get the cost of the shortest path to the target.
+     *
+     * @return the cost of the path, or UNREACHABLE if the target is not reachable within the limits.
+     */
+    public int getCost() {
+        return costs[target];
+    }
+
+    /**
+     * Get the number of cells expanded by the search.
+     *
+     * @return the number of expanded cells.
+     */
+    public int getTotExpanded() {
+        return totExpanded;
+    }
+
+    /**
+     * Get the cells of the shortest path to the target.
+     *
+     * @return the indices of the cells starting from the source, or null if the target is not reachable.
+     */
+    public int[] getPath() {
+        if (costs[target] == DialShortestPath.UNREACHABLE) {
+            return null;
+        }
+
+        final int[] path = new int[hops[target] + 1];
+        int cell = target;
+        for (int pos = path.length - 1; pos >= 0; pos--) {
+            path[pos] = cell;
+            cell = predecessors[cell];
+        }
+
+        return path;
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.eaw1805.algorithms;
+
+import com.eaw1805.data.model.Game;
+import com.eaw1805.data.model.map.Sector;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+/**
+ * Counts the battalions of all the nations of a game with a single query, so that a {@link BattalionIndex} is
+ * filled once per turn instead of once per nation.
+ * It is implemented on top of the battalion manager, that runs the same count as
+ * {@code BattalionManagerBean.countBattalions} grouped by nation instead of filtered by nation.
+ */
+public interface BattalionCounter {
+
+    /**
+     * Count the battalions of each nation per sector, with the same criteria as
+     * {@code BattalionManagerBean.countBattalions(game, nation, 40, true)}.
+     *
+     * @param game the Game to investigate.
+     * @return the number of battalions per sector, keyed by the identity of the nation.
+     */
+    Map<Integer, Map<Sector, BigInteger>> countBattalionsByGame(Game game);
+
+}
@@ -0,0 +1,109 @@
+package com.eaw1805.algorithms;
+
+import com.eaw1805.data.managers.beans.BattalionManagerBean;
+import com.eaw1805.data.model.Game;
+import com.eaw1805.data.model.Nation;
+import com.eaw1805.data.model.map.Sector;
+
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the number of battalions of each nation per sector during a turn, so that the battalions of a nation are
+ * counted once and shared by the distance calculators of all nations and regions.
+ * The counts are loaded on first use, or all at once via {@link #load(Collection)}. If a {@link BattalionCounter} is
+ * given, {@link #load(Collection)} runs a single query for all the nations of the game.
+ */
+public class BattalionIndex {
+
+    /**
+     * The game examined.
+     */
+    private final transient Game thisGame;
+
+    /**
+     * The battalion manager bean.
+     */
+    private final transient BattalionManagerBean battalionManagerBean;
+
+    /**
+     * The query that counts the battalions of all the nations at once, or null if not available.
+     */
+    private final transient BattalionCounter battalionCounter;
+
+    /**
+     * The number of battalions per sector, keyed by the identity of the nation.
+     */
+    private final transient Map<Integer, Map<Sector, BigInteger>> battalions;
+
+    /**
+     * Default constructor.
+     *
+     * @param game             the Game to investigate.
+     * @param battalionManager the battalion manager bean.
+     */
+    public BattalionIndex(final Game game, final BattalionManagerBean battalionManager) {
+        this(game, battalionManager, null);
+    }
+
+    /**
+     * Constructor that counts the battalions of all the nations with a single query.
+     *
+     * @param game             the Game to investigate.
+     * @param battalionManager the battalion manager bean, used for the nations missing from the bulk query.
+     * @param counter          the query that counts the battalions of all the nations at once.
+     */
+    public BattalionIndex(final Game game, final BattalionManagerBean battalionManager,
+                          final BattalionCounter counter) {
+        thisGame = game;
+        battalionManagerBean = battalionManager;
+        battalionCounter = counter;
+        battalions = new HashMap<Integer, Map<Sector, BigInteger>>();
+    }
+
+    /**
+     * Load the battalions of all the nations, e.g. at the beginning of the turn.
+     * With a {@link BattalionCounter} all the nations are counted by one query, otherwise by one query each.
+     *
+     * @param nations the nations of the game.
+     */
+    public void load(final Collection<Nation> nations) {
+        if (battalionCounter != null) {
+            final Map<Integer, Map<Sector, BigInteger>> counts = battalionCounter.countBattalionsByGame(thisGame);
+            synchronized (this) {
+                for (final Nation nation : nations) {
+                    // a nation without battalions is missing from the result of the query
+                    final Map<Sector, BigInteger> nationCounts = counts.get(nation.getId());
+                    battalions.put(nation.getId(), (nationCounts == null)
+                            ? Collections.<Sector, BigInteger>emptyMap()
+                            : nationCounts);
+                }
+            }
+            return;
+        }
+
+        for (final Nation nation : nations) {
+            getBattalions(nation);
+        }
+    }
+
+    /**
+     * Get the number of battalions of the nation per sector.
+     *
+     * @param nation the nation.
+     * @return the number of battalions per sector.
+     */
+    public synchronized Map<Sector, BigInteger> getBattalions(final Nation nation) {
+        Map<Sector, BigInteger> counts = battalions.get(nation.getId());
+        if (counts == null) {
+            counts = battalionManagerBean.countBattalions(thisGame, nation, 40, true);
+            battalions.put(nation.getId(), counts);
+        }
+
+        return counts;
+    }
+
+}
@@ -0,0 +1,573 @@
+package com.eaw1805.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * Single-source shortest paths with limits on the number of sectors that can be conquered along the path.
+ * The search is label-setting: a cell may hold several labels, one for each combination of cost, number of edges
+ * and remaining conquer budgets that is not dominated by another label of the same cell. Labels are expanded in
+ * increasing order of cost using the same bucket queue as {@link DialShortestPath}, so each cell gets its cheapest
+ * path that respects the limits, even when the cheapest path overall would need too many conquests.
+ * Running out of the neutral budget does not stop a path, it only means that the neutral sectors entered
+ * afterwards are not conquered. Running out of the enemy budget makes the enemy sectors impassable.
+ * Optionally the search also keeps, in the same traversal, the paths that go only through force march cells; these
+ * may cost up to a higher limit and form a second layer of reachable cells.
+ */
+public class ConstrainedShortestPath {
+
+    /**
+     * The cost of the cells that are not reachable.
+     */
+    public static final int UNREACHABLE = DialShortestPath.UNREACHABLE;
+
+    /**
+     * The cell does not need to be conquered.
+     */
+    public static final byte KIND_NONE = 0;
+
+    /**
+     * The cell is a neutral sector that is conquered while there is neutral budget left.
+     */
+    public static final byte KIND_NEUTRAL = 1;
+
+    /**
+     * The cell is an enemy sector that must be conquered in order to enter it.
+     */
+    public static final byte KIND_ENEMY = 2;
+
+    /**
+     * The graph to search.
+     */
+    private final GridGraph graph;
+
+    /**
+     * The maximum cost of a path.
+     */
+    private final int maxCost;
+
+    /**
+     * The maximum number of edges of a path.
+     */
+    private final int maxHops;
+
+    /**
+     * The kind of conquest needed for entering each cell.
+     */
+    private final byte[] kinds;
+
+    /**
+     * Marks the cells where force march is possible, or null if the force march layer is not computed.
+     */
+    private final boolean[] forceMarchCells;
+
+    /**
+     * The maximum cost of a path that goes only through force march cells.
+     */
+    private final int maxForceMarchCost;
+
+    /**
+     * The budget of the search, or null if the search is not limited.
+     */
+    private final SearchBudget budget;
+
+    /**
+     * The cost from which the labels are not final, because the search stopped when the budget ran out.
+     */
+    private int stopCost = Integer.MAX_VALUE;
+
+    /**
+     * If the maximum number of edges may exclude a path that respects the maximum cost.
+     */
+    private final boolean hopsBind;
+
+    /**
+     * The first label of each cell.
+     */
+    private final int[] cellHead;
+
+    /**
+     * The best label of each cell.
+     */
+    private final int[] best;
+
+    /**
+     * The cheapest force march label of each cell.
+     */
+    private final int[] bestForceMarch;
+
+    /**
+     * The cell of each label.
+     */
+    private int[] labelCell;
+
+    /**
+     * The cost of the path of each label.
+     */
+    private int[] labelCost;
+
+    /**
+     * The number of edges of the path of each label.
+     */
+    private int[] labelHops;
+
+    /**
+     * The neutral budget left at each label.
+     */
+    private int[] labelNeutral;
+
+    /**
+     * The enemy budget left at each label.
+     */
+    private int[] labelConquer;
+
+    /**
+     * Marks the labels whose path goes only through force march cells.
+     */
+    private boolean[] labelForceMarch;
+
+    /**
+     * The previous label of the path of each label.
+     */
+    private int[] labelPred;
+
+    /**
+     * The next label of the same cell.
+     */
+    private int[] labelNextAtCell;
+
+    /**
+     * The next label of the same bucket.
+     */
+    private int[] labelNextInBucket;
+
+    /**
+     * Marks the labels that are dominated by a later label of the same cell.
+     */
+    private boolean[] labelDead;
+
+    /**
+     * The number of labels created.
+     */
+    private int totLabels;
+
+    /**
+     * Default constructor.
+     *
+     * @param graph      the graph to search.
+     * @param source     the index of the starting cell.
+     * @param maxCost    the maximum cost of the paths.
+     * @param maxHops    the maximum number of edges of the paths.
+     * @param kinds      the kind of conquest needed for entering each cell.
+     * @param maxNeutral the maximum number of neutral sectors that can be conquered.
+     * @param maxConquer the maximum number of enemy sectors that can be conquered.
+     */
+    public ConstrainedShortestPath(final GridGraph graph,
+                                   final int source,
+                                   final int maxCost,
+                                   final int maxHops,
+                                   final byte[] kinds,
+                                   final int maxNeutral,
+                                   final int maxConquer) {
+        this(graph, source, maxCost, maxHops, kinds, maxNeutral, maxConquer, null, 0);
+    }
+
+    /**
+     * Constructor that also computes the cells reachable through force march cells only.
+     *
+     * @param graph             the graph to search.
+     * @param source            the index of the starting cell.
+     * @param maxCost           the maximum cost of the paths.
+     * @param maxHops           the maximum number of edges of the paths.
+     * @param kinds             the kind of conquest needed for entering each cell.
+     * @param maxNeutral        the maximum number of neutral sectors that can be conquered.
+     * @param maxConquer        the maximum number of enemy sectors that can be conquered.
+     * @param forceMarchCells   marks the cells where force march is possible, or null to skip the force march layer.
+     * @param maxForceMarchCost the maximum cost of the paths that go only through force march cells.
+     */
+    public ConstrainedShortestPath(final GridGraph graph,
+                                   final int source,
+                                   final int maxCost,
+                                   final int maxHops,
+                                   final byte[] kinds,
+                                   final int maxNeutral,
+                                   final int maxConquer,
+                                   final boolean[] forceMarchCells,
+                                   final int maxForceMarchCost) {
+        this(graph, source, maxCost, maxHops, kinds, maxNeutral, maxConquer, forceMarchCells, maxForceMarchCost,
+                null);
+    }
+
+    /**
+     * Constructor that stops the search when the budget runs out.
+     * In that case only the cells whose best path is already known are reachable.
+     *
+     * @param graph             the graph to search.
+     * @param source            the index of the starting cell.
+     * @param maxCost           the maximum cost of the paths.
+     * @param maxHops           the maximum number of edges of the paths.
+     * @param kinds             the kind of conquest needed for entering each cell.
+     * @param maxNeutral        the maximum number of neutral sectors that can be conquered.
+     * @param maxConquer        the maximum number of enemy sectors that can be conquered.
+     * @param forceMarchCells   marks the cells where force march is possible, or null to skip the force march layer.
+     * @param maxForceMarchCost the maximum cost of the paths that go only through force march cells.
+     * @param budget            the budget of the search, or null if the search is not limited.
+     */
+    public ConstrainedShortestPath(final GridGraph graph,
+                                   final int source,
+                                   final int maxCost,
+                                   final int maxHops,
+                                   final byte[] kinds,
+                                   final int maxNeutral,
+                                   final int maxConquer,
+                                   final boolean[] forceMarchCells,
+                                   final int maxForceMarchCost,
+                                   final SearchBudget budget) {
+        this.graph = graph;
+        this.budget = budget;
+        this.maxCost = maxCost;
+        this.maxHops = maxHops;
+        this.kinds = kinds;
+        this.forceMarchCells = forceMarchCells;
+        this.maxForceMarchCost = (forceMarchCells == null) ? 0 : maxForceMarchCost;
+        final int topCost = Math.max(maxCost, this.maxForceMarchCost);
+        hopsBind = graph.getMinCost() == 0 || topCost > (long) maxHops * graph.getMinCost();
+        cellHead = new int[graph.size()];
+        best = new int[graph.size()];
+        bestForceMarch = new int[graph.size()];
+        Arrays.fill(cellHead, -1);
+        Arrays.fill(best, -1);
+        Arrays.fill(bestForceMarch, -1);
+
+        final int capacity = Math.max(16, graph.size());
+        labelCell = new int[capacity];
+        labelCost = new int[capacity];
+        labelHops = new int[capacity];
+        labelNeutral = new int[capacity];
+        labelConquer = new int[capacity];
+        labelForceMarch = new boolean[capacity];
+        labelPred = new int[capacity];
+        labelNextAtCell = new int[capacity];
+        labelNextInBucket = new int[capacity];
+        labelDead = new boolean[capacity];
+
+        search(source, maxNeutral, maxConquer);
+        selectBest();
+    }
+
+    /**
+     * Expand the labels in increasing order of cost.
+     *
+     * @param source     the index of the starting cell.
+     * @param maxNeutral the maximum number of neutral sectors that can be conquered.
+     * @param maxConquer the maximum number of enemy sectors that can be conquered.
+     */
+    private void search(final int source, final int maxNeutral, final int maxConquer) {
+        final int totBuckets = graph.getMaxCost() + 1;
+        final int[] bucketHead = new int[totBuckets];
+        Arrays.fill(bucketHead, -1);
+
+        // the unit already stands on the source cell
+        final int sourceLabel = addLabel(source, 0, 0, maxNeutral, maxConquer, forceMarchCells != null, -1);
+        labelNextInBucket[sourceLabel] = -1;
+        bucketHead[0] = sourceLabel;
+        int pending = 1;
+
+        for (int cost = 0; pending > 0; cost++) {
+            if (budget != null && budget.isExhausted()) {
+                stopCost = cost;
+                return;
+            }
+
+            final int bucket = cost % totBuckets;
+            while (bucketHead[bucket] >= 0) {
+                final int label = bucketHead[bucket];
+                bucketHead[bucket] = labelNextInBucket[label];
+                pending--;
+
+                if (labelDead[label] || labelHops[label] >= maxHops) {
+                    continue;
+                }
+
+                final int vertex = labelCell[label];
+                for (int direction = 0; direction < GridGraph.DIRECTIONS; direction++) {
+                    if (!graph.hasEdge(vertex, direction)) {
+                        continue;
+                    }
+
+                    final int target = graph.neighbour(vertex, direction);
+                    final int newCost = cost + graph.getCost(target);
+                    final boolean forceMarch = labelForceMarch[label] && forceMarchCells[target];
+                    if (newCost > (forceMarch ? Math.max(maxCost, maxForceMarchCost) : maxCost)) {
+                        continue;
+                    }
+
+                    // Update conquer budgets
+                    int neutral = labelNeutral[label];
+                    int conquer = labelConquer[label];
+                    if (kinds[target] == KIND_NEUTRAL) {
+                        if (neutral > 0) {
+                            neutral--;
+                        }
+
+                    } else if (kinds[target] == KIND_ENEMY) {
+                        if (conquer <= 0) {
+                            continue;
+                        }
+                        conquer--;
+                    }
+
+                    final int newHops = labelHops[label] + 1;
+                    if (!prune(target, newCost, newHops, neutral, conquer, forceMarch)) {
+                        continue;
+                    }
+
+                    final int newLabel = addLabel(target, newCost, newHops, neutral, conquer, forceMarch, label);
+                    final int newBucket = newCost % totBuckets;
+                    labelNextInBucket[newLabel] = bucketHead[newBucket];
+                    bucketHead[newBucket] = newLabel;
+                    pending++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Check the labels of the cell against a new label. The labels dominated by the new one are marked as dead.
+     *
+     * @param cell       the index of the cell.
+     * @param cost       the cost of the new label.
+     * @param hops       the number of edges of the new label.
+     * @param neutral    the neutral budget left at the new label.
+     * @param conquer    the enemy budget left at the new label.
+     * @param forceMarch if the path of the new label goes only through force march cells.
+     * @return false if the new label is dominated by an existing one.
+     */
+    private boolean prune(final int cell, final int cost, final int hops, final int neutral, final int conquer,
+                          final boolean forceMarch) {
+        for (int label = cellHead[cell]; label >= 0; label = labelNextAtCell[label]) {
+            if (labelDead[label]) {
+                continue;
+            }
+
+            if (labelCost[label] <= cost && labelConquer[label] >= conquer && labelNeutral[label] >= neutral
+                    && (!hopsBind || labelHops[label] <= hops)
+                    && (labelForceMarch[label] || !forceMarch)) {
+                return false;
+            }
+        }
+
+        for (int label = cellHead[cell]; label >= 0; label = labelNextAtCell[label]) {
+            if (!labelDead[label] && cost <= labelCost[label] && conquer >= labelConquer[label]
+                    && neutral >= labelNeutral[label]
+                    && (!hopsBind || hops <= labelHops[label])
+                    && (forceMarch || !labelForceMarch[label])) {
+                labelDead[label] = true;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Create a new label and attach it to its cell.
+     *
+     * @return the new label.
+     */
+    private int addLabel(final int cell, final int cost, final int hops,
+                         final int neutral, final int conquer, final boolean forceMarch, final int pred) {
+        if (totLabels == labelCell.length) {
+            final int capacity = 2 * totLabels;
+            labelCell = Arrays.copyOf(labelCell, capacity);
+            labelCost = Arrays.copyOf(labelCost, capacity);
+            labelHops = Arrays.copyOf(labelHops, capacity);
+            labelNeutral = Arrays.copyOf(labelNeutral, capacity);
+            labelConquer = Arrays.copyOf(labelConquer, capacity);
+            labelForceMarch = Arrays.copyOf(labelForceMarch, capacity);
+            labelPred = Arrays.copyOf(labelPred, capacity);
+            labelNextAtCell = Arrays.copyOf(labelNextAtCell, capacity);
+            labelNextInBucket = Arrays.copyOf(labelNextInBucket, capacity);
+            labelDead = Arrays.copyOf(labelDead, capacity);
+        }
+
+        final int label = totLabels++;
+        labelCell[label] = cell;
+        labelCost[label] = cost;
+        labelHops[label] = hops;
+        labelNeutral[label] = neutral;
+        labelConquer[label] = conquer;
+        labelForceMarch[label] = forceMarch;
+        labelPred[label] = pred;
+        labelNextAtCell[label] = cellHead[cell];
+        cellHead[cell] = label;
+        return label;
+    }
+
+    /**
+     * Select the best label of each cell: the cheapest one, then the one with the most budget left,
+     * then the one with the fewest edges. Also select the cheapest force march label of each cell.
+     */
+    private void selectBest() {
+        for (int label = 0; label < totLabels; label++) {
+            final int cell = labelCell[label];
+            if (labelCost[label] >= stopCost) {
+                // the search stopped before this label was final
+                continue;
+            }
+
+            if (labelForceMarch[label]
+                    && (bestForceMarch[cell] < 0
+                    || labelCost[label] < labelCost[bestForceMarch[cell]]
+                    || (labelCost[label] == labelCost[bestForceMarch[cell]]
+                    && labelHops[label] < labelHops[bestForceMarch[cell]]))) {
+                bestForceMarch[cell] = label;
+            }
+
+            // the labels beyond the normal limit belong only to the force march layer
+            if (labelCost[label] > maxCost) {
+                continue;
+            }
+
+            final int current = best[cell];
+            if (current < 0
+                    || labelCost[label] < labelCost[current]
+                    || (labelCost[label] == labelCost[current]
+                    && (labelConquer[label] > labelConquer[current]
+                    || (labelConquer[label] == labelConquer[current]
+                    && (labelNeutral[label] > labelNeutral[current]
+                    || (labelNeutral[label] == labelNeutral[current]
+                    && labelHops[label] < labelHops[current])))))) {
+                best[cell] = label;
+            }
+        }
+    }
+
+    /**
+     * Get the cost of the best path to the cell.
+     *
+     * @param index the index of the target cell.
+     * @return the cost of the path, or UNREACHABLE if the cell is not reachable within the limits.
+     */
+    public int getCost(final int index) {
+        return (best[index] < 0) ? UNREACHABLE : labelCost[best[index]];
+    }
+
+    /**
+     * Get the label of the best path to the cell.
+     *
+     * @param index the index of the target cell.
+     * @return the label, or -1 if the cell is not reachable within the limits.
+     */
+    public int getBestLabel(final int index) {
+        return best[index];
+    }
+
+    /**
+     * Get the cost of the cheapest path to the cell that goes only through force march cells.
+     *
+     * @param index the index of the target cell.
+     * @return the cost of the path, or UNREACHABLE if the cell is not reachable by force march.
+     */
+    public int getForceMarchCost(final int index) {
+        return (bestForceMarch[index] < 0) ? UNREACHABLE : labelCost[bestForceMarch[index]];
+    }
+
+    /**
+     * Get the label of the cheapest path to the cell that goes only through force march cells.
+     *
+     * @param index the index of the target cell.
+     * @return the label, or -1 if the cell is not reachable by force march.
+     */
+    public int getBestForceMarchLabel(final int index) {
+        return bestForceMarch[index];
+    }
+
+    public int getTotLabels() {
+        return totLabels;
+    }
+
+    public int getLabelCell(final int label) {
+        return labelCell[label];
+    }
+
+    public int getLabelCost(final int label) {
+        return labelCost[label];
+    }
+
+    public int getLabelHops(final int label) {
+        return labelHops[label];
+    }
+
+    /**
+     * Check if the path of the label goes only through force march cells.
+     *
+     * @param label the label.
+     * @return true if the unit can force march along the path.
+     */
+    public boolean isForceMarch(final int label) {
+        return labelForceMarch[label];
+    }
+
+    /**
+     * Get the previous label of the path.
+     *
+     * @param label the label.
+     * @return the previous label, or -1 for the label of the source.
+     */
+    public int getLabelPredecessor(final int label) {
+        return labelPred[label];
+    }
+
+    /**
+     * Get the number of neutral sectors that can still be conquered after entering the cell of the label.
+     *
+     * @param label the label.
+     * @return the neutral budget left.
+     */
+    public int getRemainingNeutral(final int label) {
+        return labelNeutral[label];
+    }
+
+    /**
+     * Get the number of enemy sectors that can still be conquered after entering the cell of the label.
+     *
+     * @param label the label.
+     * @return the enemy budget left.
+     */
+    public int getRemainingConquer(final int label) {
+        return labelConquer[label];
+    }
+
+    /**
+     * Check if the cell of the label is conquered when entering it along the path of the label.
+     *
+     * @param label the label.
+     * @return true if a neutral or an enemy sector is conquered.
+     */
+    public boolean isConquered(final int label) {
+        final int pred = labelPred[label];
+        return pred >= 0
+                && (labelNeutral[label] < labelNeutral[pred] || labelConquer[label] < labelConquer[pred]);
+    }
+
+    /**
+     * Get the cells of the best path to the cell.
+     *
+     * @param index the index of the target cell.
+     * @return the indices of the cells starting from the source, or null if the cell is not reachable.
+     */
+    public int[] getPath(final int index) {
+        if (best[index] < 0) {
+            return null;
+        }
+
+        final int[] path = new int[labelHops[best[index]] + 1];
+        int label = best[index];
+        for (int pos = path.length - 1; pos >= 0; pos--) {
+            path[pos] = labelCell[label];
+            label = labelPred[label];
+        }
+
+        return path;
+    }
+
+}
@@ -0,0 +1,383 @@
+package com.eaw1805.algorithms;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Single-source shortest paths using Dial's algorithm (bucket queue).
+ * Edge weights must be small non-negative integers (i.e. MP costs), and the search stops expanding once the
+ * tentative cost exceeds the maximum cost provided.
+ * The maximum number of edges is checked against the cheapest path of each cell only: a cell that is reachable
+ * within the limit solely over a costlier path with fewer edges is not found, unlike a Bellman-Ford search bounded
+ * by the number of edges. Use ConstrainedShortestPath, whose labels carry the number of edges, when both limits
+ * must hold exactly.
+ * The buckets are kept in a circular array of (maximum edge weight + 1) entries, each one a doubly linked list
+ * over the cells of the grid, so that the search does not allocate any objects per vertex.
+ * The buckets are kept after the search, so that further starting cells can be added via {@link #addSource(int)};
+ * each one is seeded at cost 0 and only the cells whose cost drops are examined again.
+ */
+public class DialShortestPath {
+
+    /**
+     * The cost of the cells that are not reachable.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * The graph to search.
+     */
+    private final GridGraph graph;
+
+    /**
+     * The maximum cost of a path.
+     */
+    private final int maxCost;
+
+    /**
+     * The maximum number of edges of a path.
+     */
+    private final int maxHops;
+
+    /**
+     * The budget of the search, or null if the search is not limited.
+     */
+    private final SearchBudget budget;
+
+    /**
+     * The cells that may not be entered, in addition to those that are not vertices of the graph.
+     */
+    private final BitSet blocked;
+
+    /**
+     * The cost of the shortest path to each cell.
+     */
+    private final int[] costs;
+
+    /**
+     * The number of edges of the shortest path to each cell.
+     */
+    private final int[] hops;
+
+    /**
+     * The previous cell of the shortest path to each cell.
+     */
+    private final int[] predecessors;
+
+    /**
+     * The first cell of each bucket, or -1 if the bucket is empty.
+     */
+    private final int[] bucketHead;
+
+    /**
+     * The next cell in the bucket of each cell.
+     */
+    private final int[] next;
+
+    /**
+     * The previous cell in the bucket of each cell.
+     */
+    private final int[] prev;
+
+    /**
+     * The pass of the search where each cell was last queued.
+     */
+    private final int[] queuedPass;
+
+    /**
+     * The pass of the search where each cell was last settled.
+     */
+    private final int[] settledPass;
+
+    /**
+     * The cells settled by the latest pass of the search, in the order they were settled.
+     */
+    private final int[] changed;
+
+    /**
+     * The number of cells settled by the latest pass of the search.
+     */
+    private int totChanged;
+
+    /**
+     * The current pass of the search, increased for each call of {@link #addSource(int)}.
+     */
+    private int pass;
+
+    /**
+     * Default constructor.
+     *
+     * @param graph   the graph to search.
+     * @param source  the index of the starting cell.
+     * @param maxCost the maximum cost of the paths.
+     * @param maxHops the maximum number of edges of the cheapest paths.
+     */
+    public DialShortestPath(final GridGraph graph,
+                            final int source,
+                            final int maxCost,
+                            final int maxHops) {
+        this(graph, source, maxCost, maxHops, null);
+    }
+
+    /**
+     * Constructor that stops the search when the budget runs out.
+     * In that case only the cells whose shortest path is already known are reachable.
+     *
+     * @param graph   the graph to search.
+     * @param source  the index of the starting cell.
+     * @param maxCost the maximum cost of the paths.
+     * @param maxHops the maximum number of edges of the cheapest paths.
+     * @param budget  the budget of the search, or null if the search is not limited.
+     */
+    public DialShortestPath(final GridGraph graph,
+                            final int source,
+                            final int maxCost,
+                            final int maxHops,
+                            final SearchBudget budget) {
+        this(graph, new int[]{source}, -1, maxCost, maxHops, budget);
+    }
+
+    /**
+     * Constructor that starts from many cells at once, as if they were all connected to a virtual source at no cost.
+     * The cost of each cell is then the cost of the path from the nearest starting cell.
+     * If a target is given, the search stops as soon as the cost of the target is known, and only the cells
+     * examined up to that point are reachable.
+     *
+     * @param graph   the graph to search.
+     * @param sources the indices of the starting cells.
+     * @param target  the index of the target cell, or -1 to examine all the cells within the limits.
+     * @param maxCost the maximum cost of the paths.
+     * @param maxHops the maximum number of edges of the cheapest paths.
+     * @param budget  the budget of the search, or null if the search is not limited.
+     */
+    public DialShortestPath(final GridGraph graph,
+                            final int[] sources,
+                            final int target,
+                            final int maxCost,
+                            final int maxHops,
+                            final SearchBudget budget) {
+        this(graph, sources, target, null, maxCost, maxHops, budget);
+    }
+
+    /**
+     * Constructor that starts from many cells at once over a graph shared with other searches,
+     * where some of the cells may not be entered. The starting cells must not be blocked.
+     *
+     * @param graph   the graph to search.
+     * @param sources the indices of the starting cells.
+     * @param target  the index of the target cell, or -1 to examine all the cells within the limits.
+     * @param blocked the cells that may not be entered, or null if all the vertices may be entered.
+     * @param maxCost the maximum cost of the paths.
+     * @param maxHops the maximum number of edges of the cheapest paths.
+     * @param budget  the budget of the search, or null if the search is not limited.
+     */
+    public DialShortestPath(final GridGraph graph,
+                            final int[] sources,
+                            final int target,
+                            final BitSet blocked,
+                            final int maxCost,
+                            final int maxHops,
+                            final SearchBudget budget) {
+        this.graph = graph;
+        this.blocked = blocked;
+        this.maxCost = maxCost;
+        this.maxHops = maxHops;
+        this.budget = budget;
+        costs = new int[graph.size()];
+        hops = new int[graph.size()];
+        predecessors = new int[graph.size()];
+        Arrays.fill(costs, UNREACHABLE);
+        Arrays.fill(predecessors, -1);
+
+        bucketHead = new int[graph.getMaxCost() + 1];
+        next = new int[graph.size()];
+        prev = new int[graph.size()];
+        queuedPass = new int[graph.size()];
+        settledPass = new int[graph.size()];
+        changed = new int[graph.size()];
+        Arrays.fill(bucketHead, -1);
+
+        search(sources, target, budget);
+    }
+
+    /**
+     * Add a starting cell after the search has completed, e.g. a sector that became a supply source.
+     * The cell is seeded at cost 0 and only the cells whose cost drops are examined, so the search is not repeated
+     * from the other starting cells. The budget of the search is not applied to the added cells.
+     * The starting cell must not be blocked.
+     *
+     * @param source the index of the starting cell.
+     * @return the indices of the cells whose cost dropped, in increasing order of their new cost.
+     */
+    public int[] addSource(final int source) {
+        search(new int[]{source}, -1, null);
+        return Arrays.copyOf(changed, totChanged);
+    }
+
+    /**
+     * Expand the cells in increasing order of cost.
+     * Only the cells whose cost drops are queued, so a pass started from new cells over the costs of the previous
+     * passes examines the improved cells alone.
+     *
+     * @param sources      the indices of the starting cells.
+     * @param targetIndex  the index of the target cell, or -1 to examine all the cells within the limits.
+     * @param searchBudget the budget of the pass, or null if the pass is not limited.
+     */
+    private void search(final int[] sources, final int targetIndex, final SearchBudget searchBudget) {
+        final int totBuckets = bucketHead.length;
+        pass++;
+        totChanged = 0;
+
+        int pending = 0;
+        for (final int source : sources) {
+            if (costs[source] > 0) {
+                if (queuedPass[source] == pass) {
+                    continue;
+                }
+                costs[source] = 0;
+                hops[source] = 0;
+                predecessors[source] = -1;
+                queuedPass[source] = pass;
+                link(0, source);
+                pending++;
+            }
+        }
+
+        for (int cost = 0; pending > 0; cost++) {
+            if (searchBudget != null && searchBudget.isExhausted()) {
+                dropUnsettled();
+                return;
+            }
+
+            final int bucket = cost % totBuckets;
+            while (bucketHead[bucket] >= 0) {
+                final int vertex = bucketHead[bucket];
+                unlink(bucket, vertex);
+                pending--;
+                settledPass[vertex] = pass;
+                changed[totChanged++] = vertex;
+
+                if (vertex == targetIndex) {
+                    dropUnsettled();
+                    return;
+                }
+
+                if (hops[vertex] >= maxHops) {
+                    continue;
+                }
+
+                for (int direction = 0; direction < GridGraph.DIRECTIONS; direction++) {
+                    if (!graph.hasEdge(vertex, direction)) {
+                        continue;
+                    }
+
+                    final int target = graph.neighbour(vertex, direction);
+                    if (settledPass[target] == pass || (blocked != null && blocked.get(target))) {
+                        continue;
+                    }
+
+                    final int newCost = cost + graph.getCost(target);
+                    if (newCost > maxCost || newCost >= costs[target]) {
+                        continue;
+                    }
+
+                    if (queuedPass[target] == pass) {
+                        unlink(costs[target] % totBuckets, target);
+
+                    } else {
+                        queuedPass[target] = pass;
+                        pending++;
+                    }
+
+                    costs[target] = newCost;
+                    hops[target] = hops[vertex] + 1;
+                    predecessors[target] = vertex;
+                    link(newCost % totBuckets, target);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop the cells whose shortest path is not yet known, because the search stopped early,
+     * and empty the buckets.
+     */
+    private void dropUnsettled() {
+        for (int index = 0; index < costs.length; index++) {
+            if (settledPass[index] != pass) {
+                costs[index] = UNREACHABLE;
+                predecessors[index] = -1;
+            }
+        }
+        Arrays.fill(bucketHead, -1);
+    }
+
+    /**
+     * Insert the cell at the head of the bucket.
+     */
+    private void link(final int bucket, final int vertex) {
+        next[vertex] = bucketHead[bucket];
+        prev[vertex] = -1;
+        if (bucketHead[bucket] >= 0) {
+            prev[bucketHead[bucket]] = vertex;
+        }
+        bucketHead[bucket] = vertex;
+    }
+
+    /**
+     * Remove the cell from the bucket.
+     */
+    private void unlink(final int bucket, final int vertex) {
+        if (prev[vertex] >= 0) {
+            next[prev[vertex]] = next[vertex];
+
+        } else {
+            bucketHead[bucket] = next[vertex];
+        }
+
+        if (next[vertex] >= 0) {
+            prev[next[vertex]] = prev[vertex];
+        }
+    }
+
+    /**
+     * Get the cost of the shortest path to the cell.
+     *
+     * @param index the index of the target cell.
+     * @return the cost of the path, or UNREACHABLE if the cell is not reachable within the limits.
+     */
+    public int getCost(final int index) {
+        return costs[index];
+    }
+
+    /**
+     * Get the previous cell of the shortest path to the cell.
+     *
+     * @param index the index of the target cell.
+     * @return the index of the previous cell, or -1 for the source and the cells that are not reachable.
+     */
+    public int getPredecessor(final int index) {
+        return predecessors[index];
+    }
+
+    /**
+     * Get the cells of the shortest path to the cell.
+     *
+     * @param index the index of the target cell.
+     * @return the indices of the cells starting from the source, or null if the cell is not reachable.
+     */
+    public int[] getPath(final int index) {
+        if (costs[index] == UNREACHABLE) {
+            return null;
+        }
+
+        final int[] path = new int[hops[index] + 1];
+        int cell = index;
+        for (int pos = path.length - 1; pos >= 0; pos--) {
+            path[pos] = cell;
+            cell = predecessors[cell];
+        }
+
+        return path;
+    }
+
+}
@@ -1,9 +1,7 @@
 package com.eaw1805.algorithms;
 
-import com.eaw1805.data.HibernateUtil;
 import com.eaw1805.data.constants.RegionConstants;
 import com.eaw1805.data.constants.RelationConstants;
-import com.eaw1805.data.constants.TerrainConstants;
 import com.eaw1805.data.managers.beans.BattalionManagerBean;
 import com.eaw1805.data.managers.beans.RelationsManagerBean;
 import com.eaw1805.data.managers.beans.SectorManagerBean;
@@ -14,12 +12,12 @@ import com.eaw1805.data.model.map.Region;
 import com.eaw1805.data.model.map.Sector;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.jgrapht.alg.BellmanFordShortestPath;
-import org.jgrapht.graph.SimpleDirectedGraph;
 
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -29,22 +27,32 @@ import java.util.Set;
  * Used to compute distances between sectors in Movement Points.
  */
 public class DistanceCalculator
-        implements RegionConstants, TerrainConstants {
+        implements RegionConstants {
 
     /**
      * a log4j logger to print messages.
      */
     private static final Logger LOGGER = LogManager.getLogger(DistanceCalculator.class);
 
+    /**
+     * The distance of the sectors that are beyond the range of all supply sources.
+     */
+    public static final short OUT_OF_SUPPLY = Short.MAX_VALUE;
+
+    /**
+     * The terrain graph of the region, shared with the other nations.
+     */
+    private final transient TerrainGraph terrainGraph;
+
     /**
      * Stores the graph for computing the movement cost.
      */
-    private final transient SimpleDirectedGraph<Sector, SimpleWeightedEdge> movementGraph;
+    private final transient GridGraph movementGraph;
 
     /**
-     * Stores the sectors for easy access.
+     * The sectors of the graph that are excluded for this nation because enemy troops are stationed there.
      */
-    private final transient Sector[][] sectorsArray;
+    private final transient BitSet blockedSectors;
 
     /**
      * The game instance.
@@ -67,68 +75,99 @@ public class DistanceCalculator
     private final transient RelationsManagerBean relationsManagerBean;
 
     /**
-     * The sector manager bean.
+     * The battalions of the nations per sector.
      */
-    private final transient SectorManagerBean sectorManagerBean;
+    private final transient BattalionIndex battalionIndex;
 
     /**
-     * The battalion manager bean.
+     * The distance in MPs of each sector from the nearest supply source, or OUT_OF_SUPPLY if it is beyond range.
      */
-    private final transient BattalionManagerBean battalionManagerBean;
+    private transient short[] supplyDistances;
+
+    /**
+     * The search from the supply sources, kept so that further sources extend it instead of repeating it.
+     */
+    private transient DialShortestPath supplySearch;
+
+    /**
+     * The range of the supply sources in MPs.
+     */
+    private transient int supplyRange;
 
     /**
      * Default constructor.
+     * The terrain graph of the region is built for this calculator alone and the battalions are counted again.
      *
      * @param game   the Game to investigate.
      * @param region the Region to investigate.
+     * @deprecated the terrain graph and the battalion counts are not shared with the other calculators of the turn,
+     * use {@link #DistanceCalculator(Game, Region, Nation, RelationsManagerBean, TerrainGraphCache, BattalionIndex)}.
      */
+    @Deprecated
     public DistanceCalculator(final Game game,
                               final Region region,
                               final Nation nation,
                               final RelationsManagerBean relationsManager,
                               final SectorManagerBean sectorManager,
                               final BattalionManagerBean battalionManager) {
-        final int regionSizeX, regionSizeY;
-        switch (game.getScenarioId()) {
-            case HibernateUtil.DB_FREE:
-                regionSizeX = REGION_1804_MAX_X + 2;
-                regionSizeY = REGION_1804_MAX_Y + 2;
-                break;
-
-            case HibernateUtil.DB_S3:
-                regionSizeX = REGION_1808_MAX_X + 2;
-                regionSizeY = REGION_1808_MAX_Y + 2;
-                break;
-
-            case HibernateUtil.DB_S1:
-            case HibernateUtil.DB_S2:
-            default:
-                regionSizeX = REGION_1805_MAX_X + 2;
-                regionSizeY = REGION_1805_MAX_Y + 2;
-                break;
-        }
-        movementGraph = new SimpleDirectedGraph<Sector, SimpleWeightedEdge>(SimpleWeightedEdge.class);
-        sectorsArray = new Sector[regionSizeX][regionSizeY];
+        this(new TerrainGraph(game, region, sectorManager), game, region, nation,
+                relationsManager, new BattalionIndex(game, battalionManager));
+    }
+
+    /**
+     * Constructor that uses the terrain graphs and battalion counts of the turn, shared with the other calculators.
+     *
+     * @param game          the Game to investigate.
+     * @param region        the Region to investigate.
+     * @param terrainGraphs the terrain graphs of the turn.
+     * @param battalions    the battalions of the nations per sector.
+     */
+    public DistanceCalculator(final Game game,
+                              final Region region,
+                              final Nation nation,
+                              final RelationsManagerBean relationsManager,
+                              final TerrainGraphCache terrainGraphs,
+                              final BattalionIndex battalions) {
+        this(terrainGraphs.getGraph(region), game, region, nation,
+                relationsManager, battalions);
+    }
+
+    /**
+     * Constructor that uses the given terrain graph of the region.
+     *
+     * @param terrain    the terrain graph of the region.
+     * @param game       the Game to investigate.
+     * @param region     the Region to investigate.
+     * @param battalions the battalions of the nations per sector.
+     */
+    public DistanceCalculator(final TerrainGraph terrain,
+                              final Game game,
+                              final Region region,
+                              final Nation nation,
+                              final RelationsManagerBean relationsManager,
+                              final BattalionIndex battalions) {
+        terrainGraph = terrain;
+        movementGraph = terrain.getMovementGraph();
+        blockedSectors = new BitSet(movementGraph.size());
         thisGame = game;
         thisRegion = region;
         thisNation = nation;
 
         relationsManagerBean = relationsManager;
-        sectorManagerBean = sectorManager;
-        battalionManagerBean = battalionManager;
+        battalionIndex = battalions;
 
-        // Construct the graph from the sectors.
-        createGraphFromSectors();
+        // Exclude the sectors where enemy troops are stationed.
+        blockEnemySectors();
     }
 
     /**
-     * Construct the graph from the sectors.
+     * Exclude the sectors where enemy troops are stationed.
      */
-    private void createGraphFromSectors() {
+    private void blockEnemySectors() {
         LOGGER.debug("Calculating supply lines distances for " + thisNation.getName() + " in " + thisRegion.getName());
 
         // Identify forces of nation
-        final Map<Sector, BigInteger> ownBattalions = battalionManagerBean.countBattalions(thisGame, thisNation, 40, true);
+        final Map<Sector, BigInteger> ownBattalions = battalionIndex.getBattalions(thisNation);
 
         // Identify enemy nations
         final StringBuilder strEnemies = new StringBuilder();
@@ -150,7 +189,7 @@ public class DistanceCalculator
             final StringBuilder strEnemyForces = new StringBuilder();
             strEnemyForces.append(enemy.getName());
             strEnemyForces.append(" -- ");
-            final Map<Sector, BigInteger> countBattalions = battalionManagerBean.countBattalions(thisGame, enemy, 40, true);
+            final Map<Sector, BigInteger> countBattalions = battalionIndex.getBattalions(enemy);
             for (Sector sector : countBattalions.keySet()) {
                 if (sector.getPosition().getRegion().getId() == thisRegion.getId()) {
                     // Check if in this area the nation has forces (that were not defeated in battle)
@@ -166,68 +205,43 @@ public class DistanceCalculator
             LOGGER.info("Supply lines for " + thisNation.getName() + "/" + thisRegion.getName() + " -- Forces of " + strEnemyForces.toString());
         }
 
-        // First pass, add all sectors
-        final List<Sector> lstSectorsOwned = sectorManagerBean.listByGameRegion(thisGame, thisRegion);
-        for (final Sector sector : lstSectorsOwned) {
-            // Ignore Ocean & Impassable tiles
-            if (sector.getTerrain().getId() != TERRAIN_O
-                    && sector.getTerrain().getId() != TERRAIN_I) {
-
-                // Check if foreign/enemy units are stationed in this sector
-                if (!enemySectors.contains(sector)) {
-                    movementGraph.addVertex(sector);
-                }
+        for (final Sector sector : enemySectors) {
+            final int index = getIndex(sector);
+            if (movementGraph.containsVertex(index)) {
+                blockedSectors.set(index);
             }
-            sectorsArray[sector.getPosition().getX() + 1][sector.getPosition().getY() + 1] = sector;
-        }
-
-        // Third pass, Add the edges of the graph
-        for (Sector sector : movementGraph.vertexSet()) {
-            createSector(sector);
         }
     }
 
     /**
-     * Add all edges for this sector.
+     * Get the index of the sector in the movement graph.
      *
      * @param sector the sector to examine.
+     * @return the index of the sector, or -1 if it lies outside the region.
      */
-    private void createSector(final Sector sector) {
-        final int posX = sector.getPosition().getX() + 1;
-        final int posY = sector.getPosition().getY() + 1;
-        addEdge(posX, posY, posX - 1, posY - 1);
-        addEdge(posX, posY, posX - 1, posY);
-        addEdge(posX, posY, posX - 1, posY + 1);
-        addEdge(posX, posY, posX, posY - 1);
-        addEdge(posX, posY, posX, posY + 1);
-        addEdge(posX, posY, posX + 1, posY - 1);
-        addEdge(posX, posY, posX + 1, posY);
-        addEdge(posX, posY, posX + 1, posY + 1);
+    public int getIndex(final Sector sector) {
+        return terrainGraph.getIndex(sector);
     }
 
     /**
-     * Add an edge to the directed weighted graph.
+     * Get the index of the sector in the movement graph.
      *
-     * @param posX  the X coordinate of the vertex.
-     * @param posY  the Y coordinate of the vertex.
-     * @param thatX the X coordinate of the neighboring vertex.
-     * @param thatY the Y coordinate of the neighboring vertex.
+     * @param posX the X coordinate of the sector.
+     * @param posY the Y coordinate of the sector.
+     * @return the index of the sector, or -1 if it lies outside the region.
      */
-    private void addEdge(final int posX, final int posY, final int thatX, final int thatY) {
-        if (sectorsArray[thatX][thatY] != null && movementGraph.containsVertex(sectorsArray[thatX][thatY])) {
-            final SimpleWeightedEdge thisEdge = new SimpleWeightedEdge();
-            final int mpCost;
-
-            if (sectorsArray[thatX][thatY].getPosition().getRegion().getId() == EUROPE) {
-                mpCost = sectorsArray[thatX][thatY].getTerrain().getMps();
-
-            } else {
-                mpCost = 2 * sectorsArray[thatX][thatY].getTerrain().getMps();
-            }
+    public int getIndex(final int posX, final int posY) {
+        return movementGraph.index(posX + 1, posY + 1);
+    }
 
-            movementGraph.setEdgeWeight(thisEdge, mpCost);
-            movementGraph.addEdge(sectorsArray[posX][posY], sectorsArray[thatX][thatY], thisEdge);
-        }
+    /**
+     * Check if the sector may be used by the paths of this nation.
+     *
+     * @param index the index of the sector.
+     * @return true if the sector is a vertex of the terrain graph and no enemy troops are stationed there.
+     */
+    private boolean isPassable(final int index) {
+        return movementGraph.containsVertex(index) && !blockedSectors.get(index);
     }
 
     /**
@@ -239,27 +253,183 @@ public class DistanceCalculator
      * @return true if a path of 40MP cost exists between the starting point and any other point.
      */
     public boolean pathExists(final Sector checkThis, final List<Sector> anyOfThis, final int totMP) {
-        boolean found = false;
+        return pathExists(checkThis, anyOfThis, totMP, null);
+    }
 
-        if (!movementGraph.containsVertex(checkThis)) {
+    /**
+     * Check if a path exists between the indicated sector and any other sector in the list provided,
+     * stopping when the budget runs out. In that case the result is false unless a path was already found,
+     * and the budget reports that the result is truncated.
+     *
+     * @param checkThis the starting point.
+     * @param anyOfThis a list of points to check.
+     * @param totMP     the total number of MPs that can be used.
+     * @param budget    the budget of the search, or null if the search is not limited.
+     * @return true if a path of 40MP cost exists between the starting point and any other point.
+     */
+    public boolean pathExists(final Sector checkThis, final List<Sector> anyOfThis, final int totMP,
+                              final SearchBudget budget) {
+        final int checkIndex = getIndex(checkThis);
+        if (!isPassable(checkIndex)) {
             return false;
         }
 
+        final int[] sources = new int[anyOfThis.size()];
+        int totSources = 0;
         for (final Sector sector : anyOfThis) {
-            // Compute single-source shortest paths
-            try {
-                final BellmanFordShortestPath<Sector, SimpleWeightedEdge> dsp = new BellmanFordShortestPath<Sector, SimpleWeightedEdge>(movementGraph, sector, totMP);
+            final int sourceIndex = getIndex(sector);
+            if (!isPassable(sourceIndex)) {
+                LOGGER.error("No path available connecting " + checkThis.getPosition().toString() + " with " + sector.getPosition().toString());
+                continue;
+            }
 
-                if (dsp.getCost(checkThis) <= totMP) {
-                    return true;
-                }
+            sources[totSources++] = sourceIndex;
+        }
 
-            } catch (Exception ex) {
-                LOGGER.error("No path available connecting " + checkThis.getPosition().toString() + " with " + sector.getPosition().toString());
+        if (totSources == 0) {
+            return false;
+        }
+
+        // Compute the shortest paths from all sources at once, until the sector is reached
+        final DialShortestPath dsp = new DialShortestPath(movementGraph, Arrays.copyOf(sources, totSources),
+                checkIndex, blockedSectors, totMP, Integer.MAX_VALUE, budget);
+
+        return dsp.getCost(checkIndex) <= totMP;
+    }
+
+    /**
+     * Compute the distance of every sector from the nearest supply source, up to the range of the sources.
+     * Afterwards the supply of a sector is checked via {@link #isInSupply(Sector)} without any search.
+     *
+     * @param sources the supply sources.
+     * @param totMP   the range of the supply sources in MPs.
+     * @param budget  the budget of the search, or null if the search is not limited.
+     */
+    public void setupSupplyDistances(final List<Sector> sources, final int totMP, final SearchBudget budget) {
+        final int[] sourceIndices = new int[sources.size()];
+        int totSources = 0;
+        for (final Sector sector : sources) {
+            if (sector != null) {
+                sourceIndices[totSources++] = getIndex(sector);
             }
         }
 
-        return found;
+        setupSupplyDistances(Arrays.copyOf(sourceIndices, totSources), totMP, budget);
+    }
+
+    /**
+     * Compute the distance of every sector from the nearest supply source, up to the range of the sources.
+     *
+     * @param sources the indices of the supply sources, as returned by {@link #getIndex(int, int)}.
+     * @param totMP   the range of the supply sources in MPs.
+     * @param budget  the budget of the search, or null if the search is not limited.
+     */
+    public void setupSupplyDistances(final int[] sources, final int totMP, final SearchBudget budget) {
+        final int[] sourceIndices = new int[sources.length];
+        int totSources = 0;
+        for (final int index : sources) {
+            if (isPassable(index)) {
+                sourceIndices[totSources++] = index;
+            }
+        }
+
+        supplyRange = Math.min(totMP, OUT_OF_SUPPLY - 1);
+        supplyDistances = new short[movementGraph.size()];
+        Arrays.fill(supplyDistances, OUT_OF_SUPPLY);
+
+        supplySearch = new DialShortestPath(movementGraph, Arrays.copyOf(sourceIndices, totSources),
+                -1, blockedSectors, supplyRange, Integer.MAX_VALUE, budget);
+        for (int index = 0; index < supplyDistances.length; index++) {
+            if (supplySearch.getCost(index) != DialShortestPath.UNREACHABLE) {
+                supplyDistances[index] = (short) supplySearch.getCost(index);
+            }
+        }
+    }
+
+    /**
+     * Update the distances after a sector became a supply source.
+     * The search from the other sources is extended from the new source, so only the sectors whose distance
+     * drops are examined.
+     *
+     * @param source the new supply source.
+     * @return the indices of the sectors whose distance dropped, all within the range of the supply sources.
+     */
+    public int[] addSupplySource(final Sector source) {
+        return addSupplySource(getIndex(source));
+    }
+
+    /**
+     * Update the distances after a sector became a supply source.
+     *
+     * @param sourceIndex the index of the new supply source, as returned by {@link #getIndex(int, int)}.
+     * @return the indices of the sectors whose distance dropped, all within the range of the supply sources.
+     */
+    public int[] addSupplySource(final int sourceIndex) {
+        if (supplySearch == null || !isPassable(sourceIndex)) {
+            return new int[0];
+        }
+
+        final int[] changed = supplySearch.addSource(sourceIndex);
+        for (final int index : changed) {
+            supplyDistances[index] = (short) supplySearch.getCost(index);
+        }
+
+        return changed;
+    }
+
+    /**
+     * Drop the distances from the supply sources.
+     */
+    public void clearSupplyDistances() {
+        supplyDistances = null;
+        supplySearch = null;
+    }
+
+    /**
+     * Check if the distances from the supply sources are available.
+     *
+     * @return true if setupSupplyDistances was called.
+     */
+    public boolean hasSupplyDistances() {
+        return supplyDistances != null;
+    }
+
+    /**
+     * Check if the sector is within the range of a supply source.
+     *
+     * @param sector the sector to check.
+     * @return true if a path within range exists from any supply source to the sector.
+     */
+    public boolean isInSupply(final Sector sector) {
+        return isInSupply(getIndex(sector));
+    }
+
+    /**
+     * Check if the sector is within the range of a supply source.
+     *
+     * @param index the index of the sector, as returned by {@link #getIndex(int, int)}.
+     * @return true if a path within range exists from any supply source to the sector.
+     */
+    public boolean isInSupply(final int index) {
+        return supplyDistances != null
+                && isPassable(index)
+                && supplyDistances[index] <= supplyRange;
+    }
+
+    /**
+     * Get the distance of the sector from the nearest supply source, e.g. for drawing the supply overlay.
+     *
+     * @param posX the X coordinate of the sector.
+     * @param posY the Y coordinate of the sector.
+     * @return the distance in MPs, or OUT_OF_SUPPLY if the sector is beyond the range of all supply sources.
+     */
+    public int getSupplyDistance(final int posX, final int posY) {
+        final int index = movementGraph.index(posX + 1, posY + 1);
+        if (supplyDistances == null || index < 0) {
+            return OUT_OF_SUPPLY;
+        }
+
+        return supplyDistances[index];
     }
 
 }
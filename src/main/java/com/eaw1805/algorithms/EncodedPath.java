@@ -0,0 +1,280 @@
+package com.eaw1805.algorithms;
+
+import com.eaw1805.data.dto.common.SectorDTO;
+import com.eaw1805.data.dto.web.movement.PathDTO;
+import com.eaw1805.data.dto.web.movement.PathSectorDTO;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact form of a movement path that keeps one byte per sector.
+ * The byte of each sector holds the direction from the previous sector (bits 0-2), a flag marking that the
+ * direction is present (bit 3, not set for the starting sector), and the conquer (bit 4) and force march (bit 5)
+ * flags. The images of the path sectors are produced only when the path is decoded into a PathDTO.
+ */
+public class EncodedPath
+        implements Serializable {
+
+    private static final long serialVersionUID = 42L;
+
+    /**
+     * The bits that hold the direction from the previous sector.
+     */
+    public static final int DIRECTION_MASK = 0x07;
+
+    /**
+     * Marks that the direction from the previous sector is present.
+     */
+    public static final int HAS_DIRECTION = 0x08;
+
+    /**
+     * Marks that the sector needs to be conquered.
+     */
+    public static final int NEEDS_CONQUER = 0x10;
+
+    /**
+     * Marks that the unit can force march on the sector.
+     */
+    public static final int FORCE_MARCH = 0x20;
+
+    /**
+     * The labels of the directions, as used by the images of the path sectors.
+     */
+    private static final String[] LABELS = {"LU", "L", "LD", "U", "D", "RU", "R", "RD"};
+
+    /**
+     * The images of the starting sector, for each direction towards the next sector.
+     */
+    private static final String[] START_IMAGES = new String[GridGraph.DIRECTIONS];
+
+    /**
+     * The images of the ending sector, for each direction from the previous sector.
+     */
+    private static final String[] END_IMAGES = new String[GridGraph.DIRECTIONS];
+
+    /**
+     * The images of the intermediate sectors, for each direction from the previous and towards the next sector.
+     */
+    private static final String[][] MOVE_IMAGES = new String[GridGraph.DIRECTIONS][GridGraph.DIRECTIONS];
+
+    static {
+        for (int direction = 0; direction < GridGraph.DIRECTIONS; direction++) {
+            START_IMAGES[direction] = "start-" + LABELS[direction];
+            END_IMAGES[direction] = "end-" + LABELS[direction];
+            for (int nextDirection = 0; nextDirection < GridGraph.DIRECTIONS; nextDirection++) {
+                MOVE_IMAGES[direction][nextDirection] = "move-" + LABELS[GridGraph.opposite(direction)]
+                        + "-" + LABELS[nextDirection];
+            }
+        }
+    }
+
+    /**
+     * The region of the path.
+     */
+    private final int regionId;
+
+    /**
+     * The X coordinate of the starting sector.
+     */
+    private final int startX;
+
+    /**
+     * The Y coordinate of the starting sector.
+     */
+    private final int startY;
+
+    /**
+     * One byte per sector of the path.
+     */
+    private final byte[] hops;
+
+    /**
+     * The sum of the terrain costs of the path.
+     */
+    private final int totalCost;
+
+    /**
+     * The number of enemy sectors conquered.
+     */
+    private final int totalConquer;
+
+    /**
+     * The number of neutral sectors conquered.
+     */
+    private final int totalConquerNeutral;
+
+    /**
+     * If the unit can force march along the whole path.
+     */
+    private final boolean canForceMarch;
+
+    /**
+     * Default constructor.
+     *
+     * @param regionId            the region of the path.
+     * @param startX              the X coordinate of the starting sector.
+     * @param startY              the Y coordinate of the starting sector.
+     * @param hops                one byte per sector of the path.
+     * @param totalCost           the sum of the terrain costs of the path.
+     * @param totalConquer        the number of enemy sectors conquered.
+     * @param totalConquerNeutral the number of neutral sectors conquered.
+     * @param canForceMarch       if the unit can force march along the whole path.
+     */
+    public EncodedPath(final int regionId,
+                       final int startX,
+                       final int startY,
+                       final byte[] hops,
+                       final int totalCost,
+                       final int totalConquer,
+                       final int totalConquerNeutral,
+                       final boolean canForceMarch) {
+        this.regionId = regionId;
+        this.startX = startX;
+        this.startY = startY;
+        this.hops = hops;
+        this.totalCost = totalCost;
+        this.totalConquer = totalConquer;
+        this.totalConquerNeutral = totalConquerNeutral;
+        this.canForceMarch = canForceMarch;
+    }
+
+    /**
+     * Encode a sector of the path.
+     *
+     * @param direction     the direction from the previous sector, or -1 for the starting sector.
+     * @param needsConquer  if the sector needs to be conquered.
+     * @param canForceMarch if the unit can force march on the sector.
+     * @return the byte of the sector.
+     */
+    public static byte encodeHop(final int direction, final boolean needsConquer, final boolean canForceMarch) {
+        int value = (direction < 0) ? 0 : (HAS_DIRECTION | direction);
+        if (needsConquer) {
+            value |= NEEDS_CONQUER;
+        }
+        if (canForceMarch) {
+            value |= FORCE_MARCH;
+        }
+        return (byte) value;
+    }
+
+    /**
+     * Get the image of a sector of the path.
+     *
+     * @param prevDirection the direction from the previous sector, or -1 if this is the starting sector.
+     * @param nextDirection the direction towards the next sector, or -1 if this is the ending sector.
+     * @return the image to use.
+     */
+    public static String getPathImage(final int prevDirection, final int nextDirection) {
+        if (prevDirection < 0) {
+            // fix image for starting sector
+            return START_IMAGES[nextDirection];
+
+        } else if (nextDirection < 0) {
+            // fix image for ending sector
+            return END_IMAGES[prevDirection];
+        }
+
+        return MOVE_IMAGES[prevDirection][nextDirection];
+    }
+
+    public int getRegionId() {
+        return regionId;
+    }
+
+    public int getStartX() {
+        return startX;
+    }
+
+    public int getStartY() {
+        return startY;
+    }
+
+    public byte[] getHops() {
+        return hops;
+    }
+
+    public int getTotLength() {
+        return hops.length;
+    }
+
+    public int getTotalCost() {
+        return totalCost;
+    }
+
+    public int getTotalConquer() {
+        return totalConquer;
+    }
+
+    public int getTotalConquerNeutral() {
+        return totalConquerNeutral;
+    }
+
+    public boolean getCanForceMarch() {
+        return canForceMarch;
+    }
+
+    /**
+     * Get the direction from the previous sector.
+     *
+     * @param hop the position of the sector in the path.
+     * @return the direction, or -1 for the starting sector.
+     */
+    public int getDirection(final int hop) {
+        return ((hops[hop] & HAS_DIRECTION) == 0) ? -1 : (hops[hop] & DIRECTION_MASK);
+    }
+
+    /**
+     * Decode the path into the DTO object used by the client.
+     *
+     * @param sectors the window of sectors that contains the path.
+     * @param minX    the minimum X coordinate of the window.
+     * @param minY    the minimum Y coordinate of the window.
+     * @return the DTO object.
+     */
+    public PathDTO toPathDTO(final SectorDTO sectors[][], final int minX, final int minY) {
+        return toPathDTO(new SectorWindow(sectors, minX, minY));
+    }
+
+    /**
+     * Decode the path into the DTO object used by the client.
+     *
+     * @param window the window of sectors that contains the path.
+     * @return the DTO object.
+     */
+    public PathDTO toPathDTO(final SectorWindow window) {
+        final List<PathSectorDTO> sectorsPath = new ArrayList<PathSectorDTO>(hops.length);
+        int posX = startX;
+        int posY = startY;
+        for (int hop = 0; hop < hops.length; hop++) {
+            final int direction = getDirection(hop);
+            if (direction >= 0) {
+                posX += GridGraph.deltaX(direction);
+                posY += GridGraph.deltaY(direction);
+            }
+            final int nextDirection = (hop + 1 < hops.length) ? getDirection(hop + 1) : -1;
+            final SectorDTO theSector = window.getSectorAt(posX, posY);
+
+            final PathSectorDTO empSec = new PathSectorDTO();
+            empSec.setRegionId(theSector.getRegionId());
+            empSec.setActualMPs(theSector.getTerrain().getActualMPs());
+            empSec.setX(posX);
+            empSec.setY(posY);
+            empSec.setPath(getPathImage(direction, nextDirection));
+            empSec.setNeedsConquer((hops[hop] & NEEDS_CONQUER) != 0);
+            empSec.setCanForceMarch((hops[hop] & FORCE_MARCH) != 0);
+            sectorsPath.add(empSec);
+        }
+
+        final PathDTO thisDTO = new PathDTO();
+        thisDTO.setPathSectors(sectorsPath);
+        thisDTO.setTotalCost(totalCost);
+        thisDTO.setTotLength(hops.length);
+        thisDTO.setTotalConquer(totalConquer);
+        thisDTO.setTotalConquerNeutral(totalConquerNeutral);
+        thisDTO.setCanForceMarch(canForceMarch);
+        return thisDTO;
+    }
+
+}
@@ -0,0 +1,368 @@
+package com.eaw1805.algorithms;
+
+import org.jgrapht.graph.SimpleDirectedWeightedGraph;
+
+/**
+ * Compact directed graph over a rectangular grid of sectors.
+ * Vertices are identified by the int index of the cell (x * sizeY + y) and each vertex may only be connected to
+ * its 8 neighbours. The edges of a vertex are kept as a bit mask (one bit per direction) and the weight of an edge
+ * is equal to the cost of entering the target cell.
+ */
+public class GridGraph {
+
+    /**
+     * The number of neighbours of each cell.
+     */
+    public static final int DIRECTIONS = 8;
+
+    /**
+     * The horizontal offset of each direction.
+     */
+    private static final int[] DELTA_X = {-1, -1, -1, 0, 0, 1, 1, 1};
+
+    /**
+     * The vertical offset of each direction.
+     */
+    private static final int[] DELTA_Y = {-1, 0, 1, -1, 1, -1, 0, 1};
+
+    /**
+     * The horizontal size of the grid.
+     */
+    private final int sizeX;
+
+    /**
+     * The vertical size of the grid.
+     */
+    private final int sizeY;
+
+    /**
+     * Marks the cells that are vertices of the graph.
+     */
+    private final boolean[] vertices;
+
+    /**
+     * The outgoing edges of each cell, one bit per direction.
+     */
+    private final byte[] edges;
+
+    /**
+     * The cost of entering each cell.
+     */
+    private final short[] costs;
+
+    /**
+     * The number of vertices.
+     */
+    private int totVertices;
+
+    /**
+     * The maximum cost of entering a vertex.
+     */
+    private int maxCost;
+
+    /**
+     * A lower bound of the cost of entering a vertex.
+     */
+    private int minCost = Integer.MAX_VALUE;
+
+    /**
+     * Default constructor.
+     *
+     * @param sizeX the horizontal size of the grid.
+     * @param sizeY the vertical size of the grid.
+     */
+    public GridGraph(final int sizeX, final int sizeY) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        vertices = new boolean[sizeX * sizeY];
+        edges = new byte[sizeX * sizeY];
+        costs = new short[sizeX * sizeY];
+    }
+
+    /**
+     * Copy constructor, so that a graph shared with other threads can be changed on a copy.
+     *
+     * @param other the graph to copy.
+     */
+    public GridGraph(final GridGraph other) {
+        sizeX = other.sizeX;
+        sizeY = other.sizeY;
+        vertices = other.vertices.clone();
+        edges = other.edges.clone();
+        costs = other.costs.clone();
+        totVertices = other.totVertices;
+        maxCost = other.maxCost;
+        minCost = other.minCost;
+    }
+
+    /**
+     * Get the direction that points to the opposite side.
+     *
+     * @param direction the direction.
+     * @return the opposite direction.
+     */
+    public static int opposite(final int direction) {
+        return DIRECTIONS - 1 - direction;
+    }
+
+    /**
+     * Get the horizontal offset of the direction.
+     *
+     * @param direction the direction.
+     * @return the horizontal offset.
+     */
+    public static int deltaX(final int direction) {
+        return DELTA_X[direction];
+    }
+
+    /**
+     * Get the vertical offset of the direction.
+     *
+     * @param direction the direction.
+     * @return the vertical offset.
+     */
+    public static int deltaY(final int direction) {
+        return DELTA_Y[direction];
+    }
+
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    /**
+     * Get the total number of cells of the grid.
+     *
+     * @return the number of cells.
+     */
+    public int size() {
+        return vertices.length;
+    }
+
+    public int getTotVertices() {
+        return totVertices;
+    }
+
+    public int getMaxCost() {
+        return maxCost;
+    }
+
+    /**
+     * Get a lower bound of the cost of entering any vertex of the graph.
+     *
+     * @return the minimum cost, or 0 if the graph is empty.
+     */
+    public int getMinCost() {
+        return (minCost == Integer.MAX_VALUE) ? 0 : minCost;
+    }
+
+    /**
+     * Get the index of the cell.
+     *
+     * @param posX the X coordinate of the cell.
+     * @param posY the Y coordinate of the cell.
+     * @return the index of the cell, or -1 if it is outside the grid.
+     */
+    public int index(final int posX, final int posY) {
+        if (posX < 0 || posY < 0 || posX >= sizeX || posY >= sizeY) {
+            return -1;
+        }
+
+        return posX * sizeY + posY;
+    }
+
+    /**
+     * Get the X coordinate of the cell.
+     *
+     * @param index the index of the cell.
+     * @return the X coordinate.
+     */
+    public int getX(final int index) {
+        return index / sizeY;
+    }
+
+    /**
+     * Get the Y coordinate of the cell.
+     *
+     * @param index the index of the cell.
+     * @return the Y coordinate.
+     */
+    public int getY(final int index) {
+        return index % sizeY;
+    }
+
+    /**
+     * Get the index of the neighbouring cell.
+     *
+     * @param index     the index of the cell.
+     * @param direction the direction of the neighbour.
+     * @return the index of the neighbour, or -1 if it is outside the grid.
+     */
+    public int neighbour(final int index, final int direction) {
+        return index(getX(index) + DELTA_X[direction], getY(index) + DELTA_Y[direction]);
+    }
+
+    /**
+     * Get the direction that leads from one cell to an adjacent one.
+     *
+     * @param from the index of the starting cell.
+     * @param to   the index of the adjacent cell.
+     * @return the direction, or -1 if the cells are not adjacent.
+     */
+    public int direction(final int from, final int to) {
+        final int diffX = getX(to) - getX(from);
+        final int diffY = getY(to) - getY(from);
+        for (int direction = 0; direction < DIRECTIONS; direction++) {
+            if (DELTA_X[direction] == diffX && DELTA_Y[direction] == diffY) {
+                return direction;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Add a vertex to the graph.
+     *
+     * @param index the index of the cell.
+     * @param cost  the cost of entering the cell.
+     */
+    public void addVertex(final int index, final int cost) {
+        if (!vertices[index]) {
+            vertices[index] = true;
+            totVertices++;
+        }
+        setCost(index, cost);
+    }
+
+    /**
+     * Remove a vertex, along with its incoming and outgoing edges, from the graph.
+     *
+     * @param index the index of the cell.
+     */
+    public void removeVertex(final int index) {
+        if (!vertices[index]) {
+            return;
+        }
+
+        vertices[index] = false;
+        totVertices--;
+        edges[index] = 0;
+        costs[index] = 0;
+
+        for (int direction = 0; direction < DIRECTIONS; direction++) {
+            final int thatIndex = neighbour(index, direction);
+            if (thatIndex >= 0) {
+                removeEdge(thatIndex, opposite(direction));
+            }
+        }
+    }
+
+    public boolean containsVertex(final int index) {
+        return index >= 0 && index < vertices.length && vertices[index];
+    }
+
+    /**
+     * Get the cost of entering the cell.
+     *
+     * @param index the index of the cell.
+     * @return the cost of entering the cell.
+     */
+    public int getCost(final int index) {
+        return costs[index];
+    }
+
+    /**
+     * Set the cost of entering the cell, i.e. the weight of all incoming edges.
+     *
+     * @param index the index of the cell.
+     * @param cost  the cost of entering the cell.
+     */
+    public void setCost(final int index, final int cost) {
+        costs[index] = (short) cost;
+        maxCost = Math.max(maxCost, cost);
+        minCost = Math.min(minCost, cost);
+    }
+
+    /**
+     * Add an edge from the cell towards the neighbour in the given direction.
+     *
+     * @param index     the index of the source cell.
+     * @param direction the direction of the target cell.
+     */
+    public void addEdge(final int index, final int direction) {
+        edges[index] |= (byte) (1 << direction);
+    }
+
+    /**
+     * Remove the edge from the cell towards the neighbour in the given direction.
+     *
+     * @param index     the index of the source cell.
+     * @param direction the direction of the target cell.
+     */
+    public void removeEdge(final int index, final int direction) {
+        edges[index] &= (byte) ~(1 << direction);
+    }
+
+    /**
+     * Check if there is an edge from the cell towards the neighbour in the given direction.
+     *
+     * @param index     the index of the source cell.
+     * @param direction the direction of the target cell.
+     * @return true if the edge exists.
+     */
+    public boolean hasEdge(final int index, final int direction) {
+        return (edges[index] & (1 << direction)) != 0;
+    }
+
+    /**
+     * Connect the vertex with all the neighbouring vertices in both directions.
+     *
+     * @param index the index of the cell.
+     */
+    public void connectNeighbours(final int index) {
+        for (int direction = 0; direction < DIRECTIONS; direction++) {
+            final int thatIndex = neighbour(index, direction);
+            if (containsVertex(thatIndex)) {
+                addEdge(index, direction);
+                addEdge(thatIndex, opposite(direction));
+            }
+        }
+    }
+
+    /**
+     * Build a jgrapht graph with the same vertices and edges so that the generic algorithms can be used.
+     * Vertices are identified by the index of the cell.
+     *
+     * @return a new directed weighted graph.
+     */
+    public SimpleDirectedWeightedGraph<Integer, SimpleWeightedEdge> toWeightedGraph() {
+        final SimpleDirectedWeightedGraph<Integer, SimpleWeightedEdge> graph
+                = new SimpleDirectedWeightedGraph<Integer, SimpleWeightedEdge>(SimpleWeightedEdge.class);
+
+        for (int index = 0; index < vertices.length; index++) {
+            if (vertices[index]) {
+                graph.addVertex(index);
+            }
+        }
+
+        for (int index = 0; index < vertices.length; index++) {
+            if (vertices[index] && edges[index] != 0) {
+                for (int direction = 0; direction < DIRECTIONS; direction++) {
+                    final int thatIndex = neighbour(index, direction);
+                    if (hasEdge(index, direction) && containsVertex(thatIndex)) {
+                        final SimpleWeightedEdge thisEdge = new SimpleWeightedEdge();
+                        graph.setEdgeWeight(thisEdge, costs[thatIndex]);
+                        graph.addEdge(index, thatIndex, thisEdge);
+                    }
+                }
+            }
+        }
+
+        return graph;
+    }
+
+}
@@ -0,0 +1,277 @@
+package com.eaw1805.algorithms;
+
+import com.eaw1805.data.dto.common.SectorDTO;
+import com.eaw1805.data.dto.web.movement.PathDTO;
+import com.eaw1805.data.model.Game;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Identifies the movement of all the units of a nation in one call.
+ * The units are grouped by their movement graph, so that each graph is built once, and the searches of the units
+ * are executed in parallel over the shared graphs.
+ */
+public class MovementBatch {
+
+    /**
+     * a log4j logger to print messages.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(MovementBatch.class);
+
+    /**
+     * The game examined.
+     */
+    private final Game thisGame;
+
+    /**
+     * The window of sectors to consider.
+     */
+    private final SectorWindow window;
+
+    /**
+     * The owner of the units.
+     */
+    private final int ownerId;
+
+    /**
+     * The relations between the nations.
+     */
+    private final RelationsSnapshot relations;
+
+    /**
+     * The cache that provides the movement graphs.
+     */
+    private final MovementGraphCache graphCache;
+
+    /**
+     * The executor used for computing the paths in parallel.
+     */
+    private ExecutorService executorService;
+
+    /**
+     * Default constructor.
+     *
+     * @param thisGame      the game to examine.
+     * @param sectors       the array of sectors to examine.
+     * @param minX          the minimum X coordinate.
+     * @param minY          the minimum Y coordinate.
+     * @param ownerId       the owner of the units.
+     * @param nationsLoaded the nations of the game.
+     * @param relationsMap  the relations between the nations.
+     * @param graphCache    the cache that provides the movement graphs, or null to build them for this batch only.
+     */
+    public MovementBatch(final Game thisGame,
+                         final SectorDTO sectors[][],
+                         final int minX,
+                         final int minY,
+                         final int ownerId,
+                         final List<Integer> nationsLoaded,
+                         final Map<Integer, Map<Integer, Integer>> relationsMap,
+                         final MovementGraphCache graphCache) {
+        this(thisGame, new SectorWindow(sectors, minX, minY), ownerId,
+                new RelationsSnapshot(relationsMap, nationsLoaded), graphCache);
+    }
+
+    /**
+     * Constructor that examines a window of the map, e.g. a view over the sectors of the region.
+     *
+     * @param thisGame   the game to examine.
+     * @param window     the window of sectors to examine.
+     * @param ownerId    the owner of the units.
+     * @param relations  the relations between the nations.
+     * @param graphCache the cache that provides the movement graphs, or null to build them for this batch only.
+     */
+    public MovementBatch(final Game thisGame,
+                         final SectorWindow window,
+                         final int ownerId,
+                         final RelationsSnapshot relations,
+                         final MovementGraphCache graphCache) {
+        this.thisGame = thisGame;
+        this.window = window;
+        this.ownerId = ownerId;
+        this.relations = relations;
+        this.graphCache = graphCache;
+    }
+
+    /**
+     * Set the executor used for computing the paths in parallel.
+     * If not set, the shared pool of MovementExecutor is used. The executor is never shut down by this class.
+     *
+     * @param executor the executor service to use.
+     */
+    public void setExecutorService(final ExecutorService executor) {
+        executorService = executor;
+    }
+
+    /**
+     * Identify all possible paths of each unit.
+     *
+     * @param requests the units to examine, each one with a distinct identity.
+     * @return the paths of each unit, keyed by the identity of the unit.
+     * @throws IllegalArgumentException if two requests have the same identity.
+     */
+    public Map<Integer, Set<PathDTO>> getAllPaths(final List<MovementRequest> requests) {
+        final List<MovementShortestPath> searches = createSearches(requests);
+        final List<Callable<Set<PathDTO>>> tasks = new ArrayList<Callable<Set<PathDTO>>>();
+        for (int pos = 0; pos < searches.size(); pos++) {
+            final MovementShortestPath search = searches.get(pos);
+            final MovementRequest request = requests.get(pos);
+            tasks.add(new Callable<Set<PathDTO>>() {
+                public Set<PathDTO> call() {
+                    return search.getAllPaths(request.getTotMP(), request.getMaxLength());
+                }
+            });
+        }
+
+        // the empty set is immutable, so it can be shared by all the units that failed
+        return executeTasks(requests, tasks, Collections.<PathDTO>emptySet());
+    }
+
+    /**
+     * Identify the sectors that each unit can reach, without building any path.
+     *
+     * @param requests the units to examine, each one with a distinct identity.
+     * @return the reachable sectors of each unit, keyed by the identity of the unit.
+     * @throws IllegalArgumentException if two requests have the same identity.
+     */
+    public Map<Integer, ReachabilityGrid> getReachableSectors(final List<MovementRequest> requests) {
+        final List<MovementShortestPath> searches = createSearches(requests);
+        final List<Callable<ReachabilityGrid>> tasks = new ArrayList<Callable<ReachabilityGrid>>();
+        for (int pos = 0; pos < searches.size(); pos++) {
+            final MovementShortestPath search = searches.get(pos);
+            final MovementRequest request = requests.get(pos);
+            tasks.add(new Callable<ReachabilityGrid>() {
+                public ReachabilityGrid call() {
+                    return search.getReachableSectors(request.getTotMP(), request.getMaxLength());
+                }
+            });
+        }
+
+        // a grid without any cells cannot be modified, so it can be shared by all the units that failed
+        return executeTasks(requests, tasks, new ReachabilityGrid(0, 0, 0, 0, new int[0], 0));
+    }
+
+    /**
+     * Prepare the search of each unit over the graph that corresponds to the unit.
+     *
+     * @param requests the units to examine.
+     * @return the searches, in the order of the requests.
+     * @throws IllegalArgumentException if two requests have the same identity.
+     */
+    private List<MovementShortestPath> createSearches(final List<MovementRequest> requests) {
+        // the results are keyed by the identity of the unit
+        final Set<Integer> unitIds = new HashSet<Integer>();
+        for (final MovementRequest request : requests) {
+            if (!unitIds.add(request.getUnitId())) {
+                throw new IllegalArgumentException("Duplicate movement request for unit " + request.getUnitId());
+            }
+        }
+
+        final MovementGraphCache cache = (graphCache == null) ? new MovementGraphCache() : graphCache;
+
+        final List<MovementShortestPath> searches = new ArrayList<MovementShortestPath>(requests.size());
+        for (final MovementRequest request : requests) {
+            final MovementGraph graph = cache.getGraph(thisGame, window, request.getUnitType(),
+                    ownerId, request.getWarShips(), relations);
+
+            final MovementShortestPath search = new MovementShortestPath(graph,
+                    request.getXBase(), request.getYBase(),
+                    request.getNeutralConquerCounter(), request.getConquerCounter());
+
+            // The units are already examined in parallel
+            search.setParallel(false);
+            searches.add(search);
+        }
+
+        return searches;
+    }
+
+    /**
+     * Execute the tasks of the units and collect the results.
+     * If there is only one unit the task is executed directly by the calling thread,
+     * otherwise the tasks are submitted to the executor. A unit whose task fails gets the empty result, while the
+     * results of the other units are still collected.
+     *
+     * @param requests    the units examined.
+     * @param tasks       the task of each unit, in the order of the requests.
+     * @param emptyResult the result of a unit whose task failed, shared by all such units so it must be immutable.
+     * @return the results keyed by the identity of the unit.
+     */
+    private <T> Map<Integer, T> executeTasks(final List<MovementRequest> requests,
+                                             final List<Callable<T>> tasks,
+                                             final T emptyResult) {
+        final Map<Integer, T> results = new HashMap<Integer, T>();
+        if (tasks.size() < 2) {
+            for (int pos = 0; pos < tasks.size(); pos++) {
+                try {
+                    results.put(requests.get(pos).getUnitId(), tasks.get(pos).call());
+
+                } catch (Exception ex) {
+                    LOGGER.error("Task execution failed", ex);
+                    results.put(requests.get(pos).getUnitId(), emptyResult);
+                }
+            }
+            return results;
+        }
+
+        final ExecutorService executor = (executorService == null) ? MovementExecutor.getInstance() : executorService;
+        final List<Future<T>> futures = new ArrayList<Future<T>>();
+
+        for (int pos = 0; pos < tasks.size(); pos++) {
+            try {
+                futures.add(executor.submit(tasks.get(pos)));
+
+            } catch (RejectedExecutionException ex) {
+                LOGGER.error("Task execution rejected for unit " + requests.get(pos).getUnitId(), ex);
+                futures.add(null);
+            }
+        }
+
+        // wait for all tasks to complete before continuing, a failed task only affects its own unit
+        boolean interrupted = false;
+        for (int pos = 0; pos < futures.size(); pos++) {
+            final int unitId = requests.get(pos).getUnitId();
+            if (futures.get(pos) == null) {
+                results.put(unitId, emptyResult);
+                continue;
+            }
+
+            if (interrupted) {
+                // do not keep the threads busy with paths that nobody will receive
+                futures.get(pos).cancel(true);
+                results.put(unitId, emptyResult);
+                continue;
+            }
+
+            try {
+                results.put(unitId, futures.get(pos).get());
+
+            } catch (InterruptedException ex) {
+                LOGGER.error("Task execution interrupted", ex);
+                Thread.currentThread().interrupt();
+                interrupted = true;
+                futures.get(pos).cancel(true);
+                results.put(unitId, emptyResult);
+
+            } catch (Exception ex) {
+                LOGGER.error("Task execution failed for unit " + unitId, ex);
+                results.put(unitId, emptyResult);
+            }
+        }
+
+        return results;
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.eaw1805.algorithms;
+
+import com.eaw1805.data.model.Engine;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared, bounded thread pool used for computing movement paths.
+ * The pool is created lazily on first use and is never shut down. When the queue is full the task is executed by
+ * the calling thread, so that a busy pool slows down the callers instead of rejecting their requests.
+ */
+public final class MovementExecutor {
+
+    /**
+     * The maximum number of tasks waiting for execution.
+     */
+    public static final int QUEUE_CAPACITY = 1024;
+
+    /**
+     * The number of seconds an idle thread is kept alive.
+     */
+    private static final long KEEP_ALIVE = 60L;
+
+    /**
+     * Counts the tasks that were executed by the calling thread because the queue was full.
+     */
+    private static final AtomicLong CALLER_RUNS = new AtomicLong();
+
+    /**
+     * Lazily creates the shared pool.
+     */
+    private static final class Holder {
+
+        /**
+         * The shared pool.
+         */
+        private static final ThreadPoolExecutor POOL = createPool();
+    }
+
+    /**
+     * Not to be instantiated.
+     */
+    private MovementExecutor() {
+        // nothing
+    }
+
+    /**
+     * Create the shared pool.
+     *
+     * @return a new thread pool.
+     */
+    private static ThreadPoolExecutor createPool() {
+        final ThreadPoolExecutor pool = new ThreadPoolExecutor(Engine.MAX_THREADS, Engine.MAX_THREADS,
+                KEEP_ALIVE, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY),
+                new ThreadFactory() {
+                    private final AtomicInteger counter = new AtomicInteger();
+
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread = new Thread(runnable, "movement-path-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                },
+                new RejectedExecutionHandler() {
+                    public void rejectedExecution(final Runnable runnable, final ThreadPoolExecutor executor) {
+                        CALLER_RUNS.incrementAndGet();
+                        if (!executor.isShutdown()) {
+                            runnable.run();
+                        }
+                    }
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Get the shared pool.
+     *
+     * @return the shared executor service.
+     */
+    public static ExecutorService getInstance() {
+        return Holder.POOL;
+    }
+
+    /**
+     * Get the number of threads that are actively executing tasks.
+     *
+     * @return the approximate number of active threads.
+     */
+    public static int getActiveCount() {
+        return Holder.POOL.getActiveCount();
+    }
+
+    /**
+     * Get the current number of threads of the pool.
+     *
+     * @return the number of threads.
+     */
+    public static int getPoolSize() {
+        return Holder.POOL.getPoolSize();
+    }
+
+    /**
+     * Get the maximum number of threads of the pool.
+     *
+     * @return the maximum number of threads.
+     */
+    public static int getMaximumPoolSize() {
+        return Holder.POOL.getMaximumPoolSize();
+    }
+
+    /**
+     * Get the number of tasks waiting for execution.
+     *
+     * @return the number of queued tasks.
+     */
+    public static int getQueueSize() {
+        return Holder.POOL.getQueue().size();
+    }
+
+    /**
+     * Get the number of tasks that have completed execution.
+     *
+     * @return the approximate number of completed tasks.
+     */
+    public static long getCompletedTaskCount() {
+        return Holder.POOL.getCompletedTaskCount();
+    }
+
+    /**
+     * Get the number of tasks that were executed by the calling thread because the pool was saturated.
+     *
+     * @return the number of tasks executed by the callers.
+     */
+    public static long getCallerRunsCount() {
+        return CALLER_RUNS.get();
+    }
+
+}
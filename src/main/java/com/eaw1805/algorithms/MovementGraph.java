@@ -0,0 +1,650 @@
+package com.eaw1805.algorithms;
+
+import com.eaw1805.data.constants.ArmyConstants;
+import com.eaw1805.data.constants.NationConstants;
+import com.eaw1805.data.constants.ProductionSiteConstants;
+import com.eaw1805.data.constants.RegionConstants;
+import com.eaw1805.data.constants.RelationConstants;
+import com.eaw1805.data.constants.TerrainConstants;
+import com.eaw1805.data.dto.common.SectorDTO;
+import com.eaw1805.data.model.Game;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The graph of the sectors where a unit is allowed to move, over a window of the map.
+ * The graph depends only on the owner of the unit, the class of the unit and, for fleets, on the presence of
+ * war ships, so it can be shared by all the units of a nation that have the same characteristics.
+ * Besides the vertices that the unit may enter, every land sector (for land units) has outgoing edges towards
+ * its neighbouring vertices, so that a unit can start moving from a sector that it would not be allowed to enter.
+ * A graph is never modified after it is built, so that many searches may use it at the same time. The changes of
+ * ownership, storms and relations made while the orders are processed are applied on a copy of the graph, via
+ * {@link #withSector(SectorDTO)} and {@link #withRelations(RelationsSnapshot, Collection)}.
+ */
+public class MovementGraph
+        implements ArmyConstants, TerrainConstants, ProductionSiteConstants, NationConstants,
+        RegionConstants, RelationConstants {
+
+    /**
+     * Armies, corps and brigades, that may also move over enemy territories.
+     */
+    public static final int CLASS_ARMY = 1;
+
+    /**
+     * Baggage trains, that may only move over the territories of nations that trade with everyone.
+     */
+    public static final int CLASS_BAGGAGE = 2;
+
+    /**
+     * Commanders and spies, that may move freely over any land sector.
+     */
+    public static final int CLASS_FREE = 3;
+
+    /**
+     * Ships and fleets.
+     */
+    public static final int CLASS_NAVY = 4;
+
+    /**
+     * Stores the graph for computing the shortest paths.
+     */
+    private final GridGraph sectorsGraph;
+
+    /**
+     * The window of sectors to consider.
+     */
+    private final SectorWindow window;
+
+    /**
+     * The minimum X coordinate.
+     */
+    private final int minX;
+
+    /**
+     * The minimum Y coordinate.
+     */
+    private final int minY;
+
+    /**
+     * The game examined.
+     */
+    private final Game thisGame;
+
+    /**
+     * The type of the unit that was used to build the graph.
+     */
+    private final int unitType;
+
+    /**
+     * The class of the units that may use the graph.
+     */
+    private final int unitClass;
+
+    /**
+     * The owner of the units.
+     */
+    private final int ownerId;
+
+    /**
+     * The number of war ships in the fleet.
+     */
+    private final int totWarShips;
+
+    /**
+     * The relations between the nations.
+     */
+    private final RelationsSnapshot relations;
+
+    /**
+     * Marks the sectors where a unit may start moving from.
+     */
+    private final boolean[] startSectors;
+
+    /**
+     * Marks the sectors that need to be conquered.
+     */
+    private final boolean[] needsConquer;
+
+    /**
+     * Marks the sectors where the unit can force march.
+     */
+    private final boolean[] forceMarch;
+
+    /**
+     * The kind of conquest needed for entering each sector, as used by ConstrainedShortestPath.
+     */
+    private final byte[] conquerKinds;
+
+    /**
+     * Default constructor.
+     *
+     * @param thisGame      the game to examine.
+     * @param sectors       the array of sectors to examine.
+     * @param minX          the minimum X coordinate.
+     * @param minY          the minimum Y coordinate.
+     * @param unitType      the type of the unit.
+     * @param ownerId       the owner of the unit.
+     * @param warShips      the number of warships in case of sea movement.
+     * @param nationsLoaded the nations of the game.
+     * @param relationsMap  the relations between the nations.
+     */
+    public MovementGraph(final Game thisGame,
+                         final SectorDTO sectors[][],
+                         final int minX,
+                         final int minY,
+                         final int unitType,
+                         final int ownerId,
+                         final int warShips,
+                         final List<Integer> nationsLoaded,
+                         final Map<Integer, Map<Integer, Integer>> relationsMap) {
+        this(thisGame, sectors, minX, minY, unitType, ownerId, warShips,
+                new RelationsSnapshot(relationsMap, nationsLoaded));
+    }
+
+    /**
+     * Constructor that uses relations already copied in a snapshot.
+     *
+     * @param thisGame  the game to examine.
+     * @param sectors   the array of sectors to examine.
+     * @param minX      the minimum X coordinate.
+     * @param minY      the minimum Y coordinate.
+     * @param unitType  the type of the unit.
+     * @param ownerId   the owner of the unit.
+     * @param warShips  the number of warships in case of sea movement.
+     * @param relations the relations between the nations.
+     */
+    public MovementGraph(final Game thisGame,
+                         final SectorDTO sectors[][],
+                         final int minX,
+                         final int minY,
+                         final int unitType,
+                         final int ownerId,
+                         final int warShips,
+                         final RelationsSnapshot relations) {
+        this(thisGame, new SectorWindow(sectors, minX, minY), unitType, ownerId, warShips, relations);
+    }
+
+    /**
+     * Constructor that examines a window of the map, e.g. a view over the sectors of the region.
+     *
+     * @param thisGame  the game to examine.
+     * @param window    the window of sectors to examine.
+     * @param unitType  the type of the unit.
+     * @param ownerId   the owner of the unit.
+     * @param warShips  the number of warships in case of sea movement.
+     * @param relations the relations between the nations.
+     */
+    public MovementGraph(final Game thisGame,
+                         final SectorWindow window,
+                         final int unitType,
+                         final int ownerId,
+                         final int warShips,
+                         final RelationsSnapshot relations) {
+        sectorsGraph = new GridGraph(window.getSizeX(), window.getSizeY());
+        this.window = window;
+        this.thisGame = thisGame;
+        minX = window.getMinX();
+        minY = window.getMinY();
+        this.unitType = unitType;
+        this.ownerId = ownerId;
+        unitClass = getUnitClass(unitType);
+        totWarShips = (unitClass == CLASS_NAVY) ? warShips : 0;
+        this.relations = relations;
+        startSectors = new boolean[sectorsGraph.size()];
+        needsConquer = new boolean[sectorsGraph.size()];
+        forceMarch = new boolean[sectorsGraph.size()];
+        conquerKinds = new byte[sectorsGraph.size()];
+
+        createGraphFromSectors();
+    }
+
+    /**
+     * Copy a graph, so that the copy can be changed while the original is still searched.
+     *
+     * @param other     the graph to copy.
+     * @param window    the window of sectors of the copy.
+     * @param relations the relations between the nations of the copy.
+     */
+    private MovementGraph(final MovementGraph other,
+                          final SectorWindow window,
+                          final RelationsSnapshot relations) {
+        sectorsGraph = new GridGraph(other.sectorsGraph);
+        this.window = window;
+        thisGame = other.thisGame;
+        minX = other.minX;
+        minY = other.minY;
+        unitType = other.unitType;
+        ownerId = other.ownerId;
+        unitClass = other.unitClass;
+        totWarShips = other.totWarShips;
+        this.relations = relations;
+        startSectors = other.startSectors.clone();
+        needsConquer = other.needsConquer.clone();
+        forceMarch = other.forceMarch.clone();
+        conquerKinds = other.conquerKinds.clone();
+    }
+
+    /**
+     * Identify the class of the unit.
+     *
+     * @param unitType the type of the unit.
+     * @return the class of the unit.
+     */
+    public static int getUnitClass(final int unitType) {
+        switch (unitType) {
+            case ARMY:
+            case CORPS:
+            case BRIGADE:
+                return CLASS_ARMY;
+
+            case BAGGAGETRAIN:
+                return CLASS_BAGGAGE;
+
+            case COMMANDER:
+            case SPY:
+                return CLASS_FREE;
+
+            default:
+                return CLASS_NAVY;
+        }
+    }
+
+    /**
+     * Get the lowest cost that a unit of the class may pay for entering the sector,
+     * whatever the relations between the nations and the position of the storms.
+     *
+     * @param sector    the sector.
+     * @param unitClass the class of the unit.
+     * @return the cost, or -1 if units of the class can never enter the sector.
+     */
+    public static int getMinimumCost(final SectorDTO sector, final int unitClass) {
+        if (sector == null) {
+            return -1;
+
+        } else if (unitClass == CLASS_NAVY) {
+            return isSeaSector(sector) ? 1 : -1;
+
+        } else if (sector.getTerrain().getId() == TERRAIN_O
+                || sector.getTerrain().getId() == TERRAIN_I) {
+            return -1;
+        }
+
+        return sector.getTerrain().getActualMPs();
+    }
+
+    /**
+     * Check if ships may sail through the sector, i.e. it is an ocean sector or a port.
+     *
+     * @param sector the sector.
+     * @return true if it is an ocean sector or a sector with barracks.
+     */
+    private static boolean isSeaSector(final SectorDTO sector) {
+        return (sector.getTerrain().getId() == TERRAIN_O)
+                || (sector.getProductionSiteId() == PS_BARRACKS)
+                || (sector.getProductionSiteId() == PS_BARRACKS_FH)
+                || (sector.getProductionSiteId() == PS_BARRACKS_FL)
+                || (sector.getProductionSiteId() == PS_BARRACKS_FM)
+                || (sector.getProductionSiteId() == PS_BARRACKS_FS);
+    }
+
+    /**
+     * Construct the graph from the sectors.
+     */
+    private void createGraphFromSectors() {
+        // Add the vertices of the graph
+        for (int thisX = 0; thisX < sectorsGraph.getSizeX(); thisX++) {
+            for (int thisY = 0; thisY < sectorsGraph.getSizeY(); thisY++) {
+                evaluateSector(sectorsGraph.index(thisX, thisY));
+            }
+        }
+
+        // Add the edges of the graph
+        for (int index = 0; index < sectorsGraph.size(); index++) {
+            if (startSectors[index]) {
+                for (int direction = 0; direction < GridGraph.DIRECTIONS; direction++) {
+                    if (sectorsGraph.containsVertex(sectorsGraph.neighbour(index, direction))) {
+                        sectorsGraph.addEdge(index, direction);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Decide if the unit may start from and enter the sector, and at what cost.
+     * The edges of the sector are not modified.
+     *
+     * @param index the index of the sector in the graph.
+     */
+    private void evaluateSector(final int index) {
+        final SectorDTO thisSector = getSector(index);
+        boolean isStart = false;
+        boolean isVertex = false;
+        int cost = 0;
+        needsConquer[index] = false;
+        forceMarch[index] = false;
+
+        if (thisSector != null) {
+            if (unitClass != CLASS_NAVY) {
+                // Ignore Ocean & Impassable tiles
+                if (thisSector.getTerrain().getId() != TERRAIN_O
+                        && thisSector.getTerrain().getId() != TERRAIN_I) {
+                    isStart = true;
+
+                    // check relations
+                    if (unitClass == CLASS_FREE
+                            || canCross(thisSector, index)) {
+                        // Use Terrain base costs plus modifiers
+                        isVertex = true;
+                        cost = thisSector.getTerrain().getActualMPs();
+                    }
+                }
+
+            } else if (isSeaSector(thisSector)) {
+
+                // check relations of sector
+                if (canEnterPort(thisSector)) {
+                    // Fixed costs for Fleets & Ships
+                    // It will cost one extra movement point per storm coordinate passing through
+                    isStart = true;
+                    isVertex = true;
+                    cost = thisSector.getStorm() > 0 ? 2 : 1;
+                }
+            }
+
+            forceMarch[index] = canForceMarch(thisSector);
+        }
+
+        // Neutral sectors are conquered while the unit can, enemy sectors must be conquered in order to enter them
+        if (thisSector != null
+                && thisSector.getTerrainId() != TERRAIN_O
+                && thisSector.getNationId() == NATION_NEUTRAL) {
+            conquerKinds[index] = ConstrainedShortestPath.KIND_NEUTRAL;
+
+        } else if (needsConquer[index]) {
+            conquerKinds[index] = ConstrainedShortestPath.KIND_ENEMY;
+
+        } else {
+            conquerKinds[index] = ConstrainedShortestPath.KIND_NONE;
+        }
+
+        startSectors[index] = isStart;
+        if (isVertex) {
+            sectorsGraph.addVertex(index, cost);
+
+        } else {
+            sectorsGraph.removeVertex(index);
+        }
+    }
+
+    /**
+     * Fix the edges between the sector and its 8 neighbours, in both directions.
+     *
+     * @param index the index of the sector in the graph.
+     */
+    private void connectSector(final int index) {
+        for (int direction = 0; direction < GridGraph.DIRECTIONS; direction++) {
+            final int thatIndex = sectorsGraph.neighbour(index, direction);
+            if (thatIndex < 0) {
+                continue;
+            }
+
+            if (startSectors[index] && sectorsGraph.containsVertex(thatIndex)) {
+                sectorsGraph.addEdge(index, direction);
+
+            } else {
+                sectorsGraph.removeEdge(index, direction);
+            }
+
+            if (startSectors[thatIndex] && sectorsGraph.containsVertex(index)) {
+                sectorsGraph.addEdge(thatIndex, GridGraph.opposite(direction));
+
+            } else {
+                sectorsGraph.removeEdge(thatIndex, GridGraph.opposite(direction));
+            }
+        }
+    }
+
+    /**
+     * Create a graph with the changes of a sector, e.g. a new owner after a conquest or a storm that moved.
+     * The sector replaces the one with the same coordinates in the window of the new graph; neither this graph nor
+     * the sectors of its window are modified.
+     *
+     * @param sector the updated sector.
+     * @return the new graph, or this graph if the sector lies outside the window.
+     */
+    public MovementGraph withSector(final SectorDTO sector) {
+        return withSectors(Collections.singletonList(sector));
+    }
+
+    /**
+     * Create a graph with the changes of several sectors, copying this graph once.
+     * The sectors that lie outside the window are ignored; neither this graph nor the sectors of its window are
+     * modified.
+     *
+     * @param sectors the updated sectors.
+     * @return the new graph, or this graph if all the sectors lie outside the window.
+     */
+    public MovementGraph withSectors(final Collection<SectorDTO> sectors) {
+        SectorWindow newWindow = window;
+        final List<Integer> indices = new ArrayList<Integer>();
+        for (final SectorDTO sector : sectors) {
+            final int index = getIndex(sector.getX(), sector.getY());
+            if (index >= 0) {
+                newWindow = newWindow.withSector(sectorsGraph.getX(index), sectorsGraph.getY(index), sector);
+                indices.add(index);
+            }
+        }
+
+        if (indices.isEmpty()) {
+            return this;
+        }
+
+        final MovementGraph graph = new MovementGraph(this, newWindow, relations);
+        for (final int index : indices) {
+            graph.evaluateSector(index);
+        }
+        for (final int index : indices) {
+            graph.connectSector(index);
+        }
+        return graph;
+    }
+
+    /**
+     * Create a graph with the changes of the relations between the nations.
+     * Only the sectors owned by the given nations are evaluated again; this graph is not modified.
+     *
+     * @param newRelations the relations between the nations.
+     * @param nations      the nations whose relations have changed.
+     * @return the new graph.
+     */
+    public MovementGraph withRelations(final RelationsSnapshot newRelations,
+                                       final Collection<Integer> nations) {
+        final MovementGraph graph = new MovementGraph(this, window, newRelations);
+        for (int index = 0; index < sectorsGraph.size(); index++) {
+            final SectorDTO thisSector = getSector(index);
+            if (thisSector != null && nations.contains(thisSector.getNationId())) {
+                graph.evaluateSector(index);
+                graph.connectSector(index);
+            }
+        }
+        return graph;
+    }
+
+    private boolean canCross(final SectorDTO sector, final int index) {
+        // All units can move over Neutral Sectors
+        // or sectors owned by Friendly and Allied nations.
+        if (sector.getNationId() == ownerId) {
+            // this is the owner of the sector.
+            return true;
+
+        } else if (sector.getNationId() == NATION_NEUTRAL) {
+            // this is a neutral sector
+            return true;
+
+        } else {
+            // Check Sector's relations against owner.
+            final int relation = relations.getRelation(sector.getNationId(), ownerId);
+
+            if (unitType == BAGGAGETRAIN || unitType == SHIP || unitType == FLEET) {
+                // The owner of the sector must not be hostile to any other nation
+                return (relation <= REL_TRADE) && !relations.isHostile(sector.getNationId());
+
+            } else if (relation <= REL_PASSAGE) {
+                return true;
+
+            } else {
+                if (unitType == ARMY || unitType == CORPS || unitType == BRIGADE) {
+                    // Armies and Corps are also allowed to move over enemy territories
+                    // Need to check if we have war against sector's owner
+                    final int ourRelation = relations.getRelation(ownerId, sector.getNationId());
+
+                    needsConquer[index] = (ourRelation == REL_WAR
+                            || (sector.getRegionId() != EUROPE && ourRelation == REL_COLONIAL_WAR));
+
+                    return needsConquer[index];
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private boolean canForceMarch(final SectorDTO sector) {
+        // All units can move over Neutral Sectors
+        // or sectors owned by Friendly and Allied nations.
+        if (sector.getNationId() == ownerId) {
+            // this is the owner of the sector.
+            return true;
+
+        } else if (sector.getNationId() == NATION_NEUTRAL) {
+            // this is a neutral sector
+            return false;
+
+        } else {
+            // Check Sector's relations against owner.
+            final int relation = relations.getRelation(sector.getNationId(), ownerId);
+
+            return (relation == REL_ALLIANCE);
+        }
+    }
+
+    private boolean canEnterPort(final SectorDTO sector) {
+        // Ships can move over Neutral Sectors
+        // or sectors owned by Friendly and Allied nations.
+        if (sector.getNationId() == NATION_NEUTRAL) {
+            // this is a neutral sector
+            return true;
+
+        } else if (sector.getNationId() == ownerId) {
+            // this is the owner of the sector.
+            return true;
+
+        } else {
+            // Check Sector's relations against owner.
+            final int relation = relations.getRelation(sector.getNationId(), ownerId);
+
+            return (totWarShips == 0 && relation <= REL_TRADE) || (relation <= REL_PASSAGE);
+        }
+    }
+
+    public GridGraph getGraph() {
+        return sectorsGraph;
+    }
+
+    public SectorWindow getWindow() {
+        return window;
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getUnitType() {
+        return unitType;
+    }
+
+    public int getUnitClass() {
+        return unitClass;
+    }
+
+    public RelationsSnapshot getRelations() {
+        return relations;
+    }
+
+    public int getOwnerId() {
+        return ownerId;
+    }
+
+    public int getTotWarShips() {
+        return totWarShips;
+    }
+
+    /**
+     * Get the index of the sector in the graph.
+     *
+     * @param posX the X coordinate of the sector.
+     * @param posY the Y coordinate of the sector.
+     * @return the index of the sector, or -1 if it is outside the window.
+     */
+    public int getIndex(final int posX, final int posY) {
+        return sectorsGraph.index(posX - minX + 1, posY - minY + 1);
+    }
+
+    /**
+     * Get the sector of the window that corresponds to the index of the graph.
+     *
+     * @param index the index of the sector in the graph.
+     * @return the sector.
+     */
+    public SectorDTO getSector(final int index) {
+        return window.getSector(sectorsGraph.getX(index), sectorsGraph.getY(index));
+    }
+
+    /**
+     * Check if a unit may start moving from the sector.
+     *
+     * @param index the index of the sector in the graph.
+     * @return true if the unit may start moving from the sector.
+     */
+    public boolean isStartSector(final int index) {
+        return index >= 0 && index < startSectors.length && startSectors[index];
+    }
+
+    /**
+     * Check if the sector needs to be conquered by the unit.
+     *
+     * @param index the index of the sector in the graph.
+     * @return true if the sector needs to be conquered.
+     */
+    public boolean getNeedsConquer(final int index) {
+        return needsConquer[index];
+    }
+
+    /**
+     * Check if the unit can force march on the sector.
+     *
+     * @param index the index of the sector in the graph.
+     * @return true if the unit can force march.
+     */
+    public boolean getCanForceMarch(final int index) {
+        return forceMarch[index];
+    }
+
+    public boolean[] getForceMarchSectors() {
+        return forceMarch;
+    }
+
+    public byte[] getConquerKinds() {
+        return conquerKinds;
+    }
+
+}
@@ -0,0 +1,480 @@
+package com.eaw1805.algorithms;
+
+import com.eaw1805.data.dto.common.SectorDTO;
+import com.eaw1805.data.model.Game;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the movement graphs built during a turn so that they are shared by all the units of a nation that have
+ * the same characteristics.
+ * A graph is identified by the game, the turn, the region grid, the owner, the class of the unit and, for fleets,
+ * by the presence of war ships. The graph is built over the whole region grid, so that all the units of a nation
+ * share it wherever they are positioned; arrays cut out by the caller are only shared by the callers that pass the
+ * same array with the same limits. The least recently used graphs are evicted when the cache
+ * is full. The graphs of a game are dropped when a new turn is requested. Changes made while the orders are
+ * processed are either applied to the cached graphs, via {@link #updateSector(Game, SectorDTO)} and
+ * {@link #updateRelations(Game, RelationsSnapshot, Collection)}, or cause the graphs to be dropped via {@link #invalidate(Game)}.
+ * The cached graphs are never modified: the changes are applied on copies that replace the cached entries, so
+ * that the searches running on the previous graphs are not affected. The updated sectors are kept until the end
+ * of the turn and applied to the graphs built afterwards, since they are not written into the arrays of sectors.
+ */
+public class MovementGraphCache {
+
+    /**
+     * a log4j logger to print messages.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(MovementGraphCache.class);
+
+    /**
+     * The default maximum number of graphs kept.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+
+    /**
+     * The maximum number of graphs kept.
+     */
+    private final int maxEntries;
+
+    /**
+     * The graphs kept, in access order.
+     */
+    private final LinkedHashMap<GraphKey, MovementGraph> entries;
+
+    /**
+     * The latest turn requested for each game.
+     */
+    private final Map<Integer, Integer> gameTurns;
+
+    /**
+     * The sectors updated during the turn of each game, keyed by the identity of the game and the position.
+     */
+    private final Map<Integer, Map<Long, SectorDTO>> sectorUpdates;
+
+    /**
+     * The number of updates applied, used to detect updates made while a graph is built.
+     */
+    private long totUpdates;
+
+    /**
+     * The number of requests served by a cached graph.
+     */
+    private long totHits;
+
+    /**
+     * The number of requests that built a new graph.
+     */
+    private long totMisses;
+
+    /**
+     * Default constructor.
+     */
+    public MovementGraphCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Constructor that sets the size of the cache.
+     *
+     * @param maxEntries the maximum number of graphs kept.
+     */
+    public MovementGraphCache(final int maxEntries) {
+        this.maxEntries = maxEntries;
+        entries = new LinkedHashMap<GraphKey, MovementGraph>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            protected boolean removeEldestEntry(final Map.Entry<GraphKey, MovementGraph> eldest) {
+                return size() > MovementGraphCache.this.maxEntries;
+            }
+        };
+        gameTurns = new HashMap<Integer, Integer>();
+        sectorUpdates = new HashMap<Integer, Map<Long, SectorDTO>>();
+    }
+
+    /**
+     * Get the movement graph of the unit, building it if it is not already cached.
+     *
+     * @param thisGame      the game to examine.
+     * @param sectors       the array of sectors to examine.
+     * @param minX          the minimum X coordinate.
+     * @param minY          the minimum Y coordinate.
+     * @param unitType      the type of the unit.
+     * @param ownerId       the owner of the unit.
+     * @param warShips      the number of warships in case of sea movement.
+     * @param nationsLoaded the nations of the game.
+     * @param relationsMap  the relations between the nations.
+     * @return the movement graph.
+     */
+    public MovementGraph getGraph(final Game thisGame,
+                                  final SectorDTO sectors[][],
+                                  final int minX,
+                                  final int minY,
+                                  final int unitType,
+                                  final int ownerId,
+                                  final int warShips,
+                                  final List<Integer> nationsLoaded,
+                                  final Map<Integer, Map<Integer, Integer>> relationsMap) {
+        return getGraph(thisGame, sectors, minX, minY, unitType, ownerId, warShips,
+                new RelationsSnapshot(relationsMap, nationsLoaded));
+    }
+
+    /**
+     * Get the movement graph of the unit, building it if it is not already cached.
+     *
+     * @param thisGame  the game to examine.
+     * @param sectors   the array of sectors to examine.
+     * @param minX      the minimum X coordinate.
+     * @param minY      the minimum Y coordinate.
+     * @param unitType  the type of the unit.
+     * @param ownerId   the owner of the unit.
+     * @param warShips  the number of warships in case of sea movement.
+     * @param relations the relations between the nations.
+     * @return the movement graph.
+     */
+    public MovementGraph getGraph(final Game thisGame,
+                                  final SectorDTO sectors[][],
+                                  final int minX,
+                                  final int minY,
+                                  final int unitType,
+                                  final int ownerId,
+                                  final int warShips,
+                                  final RelationsSnapshot relations) {
+        return getGraph(thisGame, new SectorWindow(sectors, minX, minY), unitType, ownerId, warShips, relations);
+    }
+
+    /**
+     * Get the movement graph of the unit over the whole region grid, building it if it is not already cached.
+     *
+     * @param thisGame      the game to examine.
+     * @param regionSectors the sectors of the region, indexed by their coordinates.
+     * @param unitType      the type of the unit.
+     * @param ownerId       the owner of the unit.
+     * @param warShips      the number of warships in case of sea movement.
+     * @param relations     the relations between the nations.
+     * @return the movement graph.
+     */
+    public MovementGraph getGraph(final Game thisGame,
+                                  final SectorDTO regionSectors[][],
+                                  final int unitType,
+                                  final int ownerId,
+                                  final int warShips,
+                                  final RelationsSnapshot relations) {
+        return getGraph(thisGame, new SectorWindow(regionSectors), unitType, ownerId, warShips, relations);
+    }
+
+    /**
+     * Get the movement graph of the unit over a window of the map, building it if it is not already cached.
+     * If the window views a region grid, the graph covers the whole region instead of the window alone.
+     *
+     * @param thisGame  the game to examine.
+     * @param window    the window of sectors to examine.
+     * @param unitType  the type of the unit.
+     * @param ownerId   the owner of the unit.
+     * @param warShips  the number of warships in case of sea movement.
+     * @param relations the relations between the nations.
+     * @return the movement graph.
+     */
+    public MovementGraph getGraph(final Game thisGame,
+                                  final SectorWindow window,
+                                  final int unitType,
+                                  final int ownerId,
+                                  final int warShips,
+                                  final RelationsSnapshot relations) {
+        // Views of a region grid share a graph over the whole region, whatever the position of the unit
+        final SectorWindow graphWindow = window.isRegionView() ? new SectorWindow(window.getGrid()) : window;
+
+        final int unitClass = MovementGraph.getUnitClass(unitType);
+        final int regionId = graphWindow.getRegionId();
+        if (regionId < 0) {
+            LOGGER.debug("Empty window of sectors");
+        }
+
+        final GraphKey key = new GraphKey(thisGame.getGameId(), thisGame.getTurn(), regionId, graphWindow.getGrid(),
+                graphWindow.getMinX(), graphWindow.getMinY(), graphWindow.getSizeX(), graphWindow.getSizeY(),
+                ownerId, unitClass, unitClass == MovementGraph.CLASS_NAVY && warShips > 0);
+
+        final List<SectorDTO> pending = new ArrayList<SectorDTO>();
+        final long updatesSeen;
+        synchronized (this) {
+            final Integer lastTurn = gameTurns.get(key.gameId);
+            if (lastTurn == null || lastTurn != key.turn) {
+                // A new turn has started, the graphs of the previous one are no longer valid
+                removeGame(key.gameId);
+                sectorUpdates.remove(key.gameId);
+                gameTurns.put(key.gameId, key.turn);
+            }
+
+            final MovementGraph cached = entries.get(key);
+            if (cached != null) {
+                totHits++;
+                return cached;
+            }
+            totMisses++;
+
+            final Map<Long, SectorDTO> gameUpdates = sectorUpdates.get(key.gameId);
+            if (gameUpdates != null) {
+                for (final SectorDTO sector : gameUpdates.values()) {
+                    if (sector.getRegionId() == regionId) {
+                        pending.add(sector);
+                    }
+                }
+            }
+            updatesSeen = totUpdates;
+        }
+
+        // Build the graph without holding the lock
+        final MovementGraph graph = new MovementGraph(thisGame, graphWindow, unitType, ownerId, warShips, relations)
+                .withSectors(pending);
+
+        synchronized (this) {
+            final Integer lastTurn = gameTurns.get(key.gameId);
+            if (lastTurn != null && lastTurn == key.turn && updatesSeen == totUpdates) {
+                final MovementGraph cached = entries.get(key);
+                if (cached != null) {
+                    // Another thread built the same graph in the meantime
+                    return cached;
+                }
+                entries.put(key, graph);
+            }
+        }
+
+        return graph;
+    }
+
+    /**
+     * Drop all the graphs of the game, for example because the relations between the nations have changed.
+     * The sectors updated during the turn are still applied to the graphs built afterwards.
+     *
+     * @param thisGame the game.
+     */
+    public synchronized void invalidate(final Game thisGame) {
+        removeGame(thisGame.getGameId());
+        totUpdates++;
+    }
+
+    /**
+     * Apply the changes of a sector to all the graphs of the game that include it.
+     * The graphs are copied without holding the lock, and each copy replaces its graph only if the cached entry
+     * has not changed in the meantime; otherwise the entry is dropped and rebuilt on the next request.
+     *
+     * @param thisGame the game.
+     * @param sector   the updated sector.
+     */
+    public void updateSector(final Game thisGame, final SectorDTO sector) {
+        final Map<GraphKey, MovementGraph> affected = new HashMap<GraphKey, MovementGraph>();
+        synchronized (this) {
+            Map<Long, SectorDTO> gameUpdates = sectorUpdates.get(thisGame.getGameId());
+            if (gameUpdates == null) {
+                gameUpdates = new HashMap<Long, SectorDTO>();
+                sectorUpdates.put(thisGame.getGameId(), gameUpdates);
+            }
+            gameUpdates.put(getKey(sector), sector);
+            totUpdates++;
+
+            for (final Map.Entry<GraphKey, MovementGraph> entry : entries.entrySet()) {
+                if (entry.getKey().gameId == thisGame.getGameId()
+                        && entry.getKey().regionId == sector.getRegionId()) {
+                    affected.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        final Map<GraphKey, MovementGraph> updated = new HashMap<GraphKey, MovementGraph>();
+        for (final Map.Entry<GraphKey, MovementGraph> entry : affected.entrySet()) {
+            updated.put(entry.getKey(), entry.getValue().withSector(sector));
+        }
+
+        replaceGraphs(affected, updated);
+    }
+
+    /**
+     * Apply the changes of the relations between the nations to all the graphs of the game.
+     * The graphs are copied without holding the lock, and each copy replaces its graph only if the cached entry
+     * has not changed in the meantime; otherwise the entry is dropped and rebuilt on the next request.
+     *
+     * @param thisGame  the game.
+     * @param relations the relations between the nations.
+     * @param nations   the nations whose relations have changed.
+     */
+    public void updateRelations(final Game thisGame,
+                                final RelationsSnapshot relations,
+                                final Collection<Integer> nations) {
+        final Map<GraphKey, MovementGraph> affected = new HashMap<GraphKey, MovementGraph>();
+        synchronized (this) {
+            totUpdates++;
+            for (final Map.Entry<GraphKey, MovementGraph> entry : entries.entrySet()) {
+                if (entry.getKey().gameId == thisGame.getGameId()) {
+                    affected.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        final Map<GraphKey, MovementGraph> updated = new HashMap<GraphKey, MovementGraph>();
+        for (final Map.Entry<GraphKey, MovementGraph> entry : affected.entrySet()) {
+            updated.put(entry.getKey(), entry.getValue().withRelations(relations, nations));
+        }
+
+        replaceGraphs(affected, updated);
+    }
+
+    /**
+     * Replace the cached graphs with their updated copies.
+     * A graph that was replaced or evicted since it was copied is dropped instead, since its copy misses the changes
+     * applied in the meantime.
+     *
+     * @param previous the graphs that were copied.
+     * @param updated  the updated copies.
+     */
+    private synchronized void replaceGraphs(final Map<GraphKey, MovementGraph> previous,
+                                            final Map<GraphKey, MovementGraph> updated) {
+        for (final Map.Entry<GraphKey, MovementGraph> entry : updated.entrySet()) {
+            if (entries.get(entry.getKey()) == previous.get(entry.getKey())) {
+                entries.put(entry.getKey(), entry.getValue());
+
+            } else {
+                entries.remove(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Drop all the graphs.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        gameTurns.clear();
+        sectorUpdates.clear();
+        totUpdates++;
+    }
+
+    /**
+     * Remove the graphs of the game.
+     *
+     * @param gameId the identity of the game.
+     */
+    private void removeGame(final int gameId) {
+        final Iterator<GraphKey> iter = entries.keySet().iterator();
+        while (iter.hasNext()) {
+            if (iter.next().gameId == gameId) {
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * Combine the region and the coordinates of the sector.
+     *
+     * @param sector the sector.
+     * @return the key of the position of the sector.
+     */
+    private static long getKey(final SectorDTO sector) {
+        return ((long) sector.getRegionId() << 32) | ((long) (sector.getX() & 0xFFFF) << 16) | (sector.getY() & 0xFFFF);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized long getTotHits() {
+        return totHits;
+    }
+
+    public synchronized long getTotMisses() {
+        return totMisses;
+    }
+
+    /**
+     * The characteristics that identify a movement graph.
+     */
+    private static final class GraphKey {
+
+        private final int gameId;
+
+        private final int turn;
+
+        private final int regionId;
+
+        private final SectorDTO[][] grid;
+
+        private final int minX;
+
+        private final int minY;
+
+        private final int sizeX;
+
+        private final int sizeY;
+
+        private final int ownerId;
+
+        private final int unitClass;
+
+        private final boolean warShips;
+
+        GraphKey(final int gameId, final int turn, final int regionId, final SectorDTO[][] grid,
+                 final int minX, final int minY, final int sizeX, final int sizeY,
+                 final int ownerId, final int unitClass, final boolean warShips) {
+            this.gameId = gameId;
+            this.turn = turn;
+            this.regionId = regionId;
+            this.grid = grid;
+            this.minX = minX;
+            this.minY = minY;
+            this.sizeX = sizeX;
+            this.sizeY = sizeY;
+            this.ownerId = ownerId;
+            this.unitClass = unitClass;
+            this.warShips = warShips;
+        }
+
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof GraphKey)) {
+                return false;
+            }
+
+            final GraphKey other = (GraphKey) obj;
+            return gameId == other.gameId
+                    && turn == other.turn
+                    && regionId == other.regionId
+                    && grid == other.grid
+                    && minX == other.minX
+                    && minY == other.minY
+                    && sizeX == other.sizeX
+                    && sizeY == other.sizeY
+                    && ownerId == other.ownerId
+                    && unitClass == other.unitClass
+                    && warShips == other.warShips;
+        }
+
+        public int hashCode() {
+            int result = gameId;
+            result = 31 * result + turn;
+            result = 31 * result + regionId;
+            result = 31 * result + System.identityHashCode(grid);
+            result = 31 * result + minX;
+            result = 31 * result + minY;
+            result = 31 * result + sizeX;
+            result = 31 * result + sizeY;
+            result = 31 * result + ownerId;
+            result = 31 * result + unitClass;
+            result = 31 * result + (warShips ? 1 : 0);
+            return result;
+        }
+    }
+
+}
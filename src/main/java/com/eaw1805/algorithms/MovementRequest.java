@@ -0,0 +1,122 @@
+package com.eaw1805.algorithms;
+
+/**
+ * The characteristics of a unit whose movement is examined as part of a batch.
+ */
+public class MovementRequest {
+
+    /**
+     * The identity of the unit, used for keying the results.
+     */
+    private final int unitId;
+
+    /**
+     * The type of the unit.
+     */
+    private final int unitType;
+
+    /**
+     * The x coordinate of the starting position.
+     */
+    private final int xBase;
+
+    /**
+     * The y coordinate of the starting position.
+     */
+    private final int yBase;
+
+    /**
+     * The total available MPs.
+     */
+    private final int totMP;
+
+    /**
+     * The maximum length in sectors.
+     */
+    private final int maxLength;
+
+    /**
+     * The maximum number of neutral sectors that the unit can conquer.
+     */
+    private final int neutralConquerCounter;
+
+    /**
+     * The maximum number of enemy sectors that the unit can conquer.
+     */
+    private final int conquerCounter;
+
+    /**
+     * The number of warships in case of sea movement.
+     */
+    private final int warShips;
+
+    /**
+     * Default constructor.
+     *
+     * @param unitId                the identity of the unit.
+     * @param unitType              the type of the unit.
+     * @param xBase                 the x coordinate of the starting position.
+     * @param yBase                 the y coordinate of the starting position.
+     * @param totMP                 the total available MPs.
+     * @param maxLength             the maximum length in sectors.
+     * @param neutralConquerCounter the maximum number of neutral sectors that the unit can conquer.
+     * @param conquerCounter        the maximum number of enemy sectors the unit can conquer.
+     * @param warShips              the number of warships in case of sea movement.
+     */
+    public MovementRequest(final int unitId,
+                           final int unitType,
+                           final int xBase,
+                           final int yBase,
+                           final int totMP,
+                           final int maxLength,
+                           final int neutralConquerCounter,
+                           final int conquerCounter,
+                           final int warShips) {
+        this.unitId = unitId;
+        this.unitType = unitType;
+        this.xBase = xBase;
+        this.yBase = yBase;
+        this.totMP = totMP;
+        this.maxLength = maxLength;
+        this.neutralConquerCounter = neutralConquerCounter;
+        this.conquerCounter = conquerCounter;
+        this.warShips = warShips;
+    }
+
+    public int getUnitId() {
+        return unitId;
+    }
+
+    public int getUnitType() {
+        return unitType;
+    }
+
+    public int getXBase() {
+        return xBase;
+    }
+
+    public int getYBase() {
+        return yBase;
+    }
+
+    public int getTotMP() {
+        return totMP;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public int getNeutralConquerCounter() {
+        return neutralConquerCounter;
+    }
+
+    public int getConquerCounter() {
+        return conquerCounter;
+    }
+
+    public int getWarShips() {
+        return warShips;
+    }
+
+}
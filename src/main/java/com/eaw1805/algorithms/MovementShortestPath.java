@@ -9,21 +9,19 @@ import com.eaw1805.data.constants.TerrainConstants;
 import com.eaw1805.data.dto.common.SectorDTO;
 import com.eaw1805.data.dto.web.movement.PathDTO;
 import com.eaw1805.data.dto.web.movement.PathSectorDTO;
-import com.eaw1805.data.model.Engine;
 import com.eaw1805.data.model.Game;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.jgrapht.alg.BellmanFordShortestPath;
-import org.jgrapht.graph.SimpleDirectedWeightedGraph;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 /**
@@ -39,14 +37,19 @@ public class MovementShortestPath
     private static final Logger LOGGER = LogManager.getLogger(MovementShortestPath.class);
 
     /**
-     * Stores the graph for computing the shortest paths.
+     * The minimum number of target sectors for computing the paths in parallel.
      */
-    private final SimpleDirectedWeightedGraph<SectorDTO, SimpleWeightedEdge> sectorsGraph;
+    public static final int MIN_PARALLEL_TARGETS = 32;
 
     /**
-     * The maximum window of sectors to consider.
+     * The sectors where the unit is allowed to move.
+     */
+    private final MovementGraph movementGraph;
+
+    /**
+     * Stores the graph for computing the shortest paths.
      */
-    private final SectorDTO sectors[][];
+    private final GridGraph sectorsGraph;
 
     /**
      * The minimum X coordinate.
@@ -68,11 +71,6 @@ public class MovementShortestPath
      */
     private final int baseY;
 
-    /**
-     * The type of the unit that will be moved.
-     */
-    private final int unitType;
-
     /**
      * The maximum number of neutral sectors that the unit can cross.
      */
@@ -84,11 +82,24 @@ public class MovementShortestPath
     private final int maxConquer;
 
     /**
-     * The number of war ships in the fleet.
+     * The executor used for computing the paths in parallel.
+     */
+    private ExecutorService executorService;
+
+    /**
+     * If the paths may be computed in parallel.
      */
-    private final int totWarShips;
+    private boolean parallel = true;
 
-    private final List<Integer> otherNations;
+    /**
+     * The budget of the searches, or null if they are not limited.
+     */
+    private SearchBudget budget;
+
+    /**
+     * The result of the last search, retained for materializing individual paths.
+     */
+    private PathTree lastTree;
 
     /**
      * Default constructor.
@@ -118,488 +129,1015 @@ public class MovementShortestPath
                                 final int warShips,
                                 final List<Integer> nationsLoaded,
                                 final Map<Integer, Map<Integer, Integer>> relationsMap) {
-        sectorsGraph = new SimpleDirectedWeightedGraph<SectorDTO, SimpleWeightedEdge>(SimpleWeightedEdge.class);
-        this.sectors = sectors;
+        this(new MovementGraph(thisGame, sectors, minX, minY, unitType, ownerId, warShips,
+                        nationsLoaded, relationsMap),
+                xBase, yBase, neutralConquerCounter, conquerCounter);
+    }
+
+    /**
+     * Constructor that uses relations already copied in a snapshot.
+     *
+     * @param thisGame              the game to examine.
+     * @param sectors               the array of sectors to examine.
+     * @param xBase                 the x coordinate of the starting position.
+     * @param yBase                 the y coordinate of the starting position.
+     * @param minX                  the minimum X coordinate.
+     * @param minY                  the minimum Y coordinate.
+     * @param unitType              the type of the unit.
+     * @param ownerId               the owner of the unit.
+     * @param neutralConquerCounter the maximum number of sectors that the unit can conquer.
+     * @param conquerCounter        the maximum number of enemy sectors the unit can conquer.
+     * @param warShips              the number of warships in case of sea movement.
+     * @param relations             the relations between the nations.
+     */
+    public MovementShortestPath(final Game thisGame,
+                                final SectorDTO sectors[][],
+                                final int xBase,
+                                final int yBase,
+                                final int minX,
+                                final int minY,
+                                final int unitType,
+                                final int ownerId,
+                                final int neutralConquerCounter,
+                                final int conquerCounter,
+                                final int warShips,
+                                final RelationsSnapshot relations) {
+        this(new MovementGraph(thisGame, sectors, minX, minY, unitType, ownerId, warShips, relations),
+                xBase, yBase, neutralConquerCounter, conquerCounter);
+    }
+
+    /**
+     * Constructor that examines a window of the map, e.g. a view over the sectors of the region.
+     *
+     * @param thisGame              the game to examine.
+     * @param window                the window of sectors to examine.
+     * @param xBase                 the x coordinate of the starting position.
+     * @param yBase                 the y coordinate of the starting position.
+     * @param unitType              the type of the unit.
+     * @param ownerId               the owner of the unit.
+     * @param neutralConquerCounter the maximum number of sectors that the unit can conquer.
+     * @param conquerCounter        the maximum number of enemy sectors the unit can conquer.
+     * @param warShips              the number of warships in case of sea movement.
+     * @param relations             the relations between the nations.
+     */
+    public MovementShortestPath(final Game thisGame,
+                                final SectorWindow window,
+                                final int xBase,
+                                final int yBase,
+                                final int unitType,
+                                final int ownerId,
+                                final int neutralConquerCounter,
+                                final int conquerCounter,
+                                final int warShips,
+                                final RelationsSnapshot relations) {
+        this(new MovementGraph(thisGame, window, unitType, ownerId, warShips, relations),
+                xBase, yBase, neutralConquerCounter, conquerCounter);
+    }
+
+    /**
+     * Constructor that reuses a graph already built for the owner and the class of the unit,
+     * for example one retrieved from a {@link MovementGraphCache}.
+     *
+     * @param movementGraph         the sectors where the unit is allowed to move.
+     * @param xBase                 the x coordinate of the starting position.
+     * @param yBase                 the y coordinate of the starting position.
+     * @param neutralConquerCounter the maximum number of sectors that the unit can conquer.
+     * @param conquerCounter        the maximum number of enemy sectors the unit can conquer.
+     */
+    public MovementShortestPath(final MovementGraph movementGraph,
+                                final int xBase,
+                                final int yBase,
+                                final int neutralConquerCounter,
+                                final int conquerCounter) {
+        this.movementGraph = movementGraph;
+        sectorsGraph = movementGraph.getGraph();
+        minX = movementGraph.getMinX();
+        minY = movementGraph.getMinY();
         baseX = xBase;
         baseY = yBase;
-        this.minX = minX;
-        this.minY = minY;
-        this.unitType = unitType;
-        otherNations = nationsLoaded;
 
-        if (unitType == BRIGADE || unitType == CORPS || unitType == ARMY) {
+        if (movementGraph.getUnitClass() == MovementGraph.CLASS_ARMY) {
             maxNeutral = neutralConquerCounter;
             maxConquer = conquerCounter;
-            totWarShips = 0;
 
         } else {
             maxNeutral = 100;
             maxConquer = 100;
-            totWarShips = warShips;
-        }
-
-        createGraphFromSectors(thisGame, ownerId, relationsMap);
-    }
-
-    /**
-     * Construct the graph from the sectors.
-     */
-    public void createGraphFromSectors(final Game thisGame, final int ownerId,
-                                       final Map<Integer, Map<Integer, Integer>> relationsMap) {
-        final boolean navy = !(unitType == ARMY
-                || unitType == CORPS
-                || unitType == BRIGADE
-                || unitType == COMMANDER
-                || unitType == SPY
-                || unitType == BAGGAGETRAIN);
-
-        final boolean canCrossFreely = (unitType == COMMANDER || unitType == SPY);
-        final int totSize = sectors.length;
-
-        // Add the vertices of the graph
-        for (final SectorDTO[] thisSectorCol : sectors) {
-            for (int thisY = 0; thisY < totSize; thisY++) {
-                if (thisSectorCol[thisY] != null) {
-                    if (!navy) {
-                        // Ignore Ocean & Impassable tiles
-                        if (thisSectorCol[thisY].getTerrain().getId() != TERRAIN_O
-                                && thisSectorCol[thisY].getTerrain().getId() != TERRAIN_I) {
-
-                            // check relations
-                            if ((thisSectorCol[thisY].getX() == baseX && thisSectorCol[thisY].getY() == baseY)
-                                    || canCrossFreely
-                                    || canCross(thisGame, ownerId, relationsMap, thisSectorCol[thisY])) {
-                                sectorsGraph.addVertex(thisSectorCol[thisY]);
-                            }
-                        }
-
-                    } else if ((thisSectorCol[thisY].getTerrain().getId() == TERRAIN_O)
-                            || (thisSectorCol[thisY].getProductionSiteId() == PS_BARRACKS)
-                            || (thisSectorCol[thisY].getProductionSiteId() == PS_BARRACKS_FH)
-                            || (thisSectorCol[thisY].getProductionSiteId() == PS_BARRACKS_FL)
-                            || (thisSectorCol[thisY].getProductionSiteId() == PS_BARRACKS_FM)
-                            || (thisSectorCol[thisY].getProductionSiteId() == PS_BARRACKS_FS)) {
-
-                        // check relations of sector
-                        if (canEnterPort(thisGame, ownerId, relationsMap, thisSectorCol[thisY])) {
-                            sectorsGraph.addVertex(thisSectorCol[thisY]);
-                        }
-                    }
-                }
-            }
+        }
+    }
+
+    /**
+     * Set the executor used for computing the paths in parallel.
+     * If not set, the shared pool of MovementExecutor is used. The executor is never shut down by this class.
+     *
+     * @param executor the executor service to use.
+     */
+    public void setExecutorService(final ExecutorService executor) {
+        executorService = executor;
+    }
+
+    /**
+     * Set if the paths may be computed in parallel. When disabled, all the paths are computed by the calling thread,
+     * for example because the caller already examines many units in parallel.
+     *
+     * @param parallel true to allow computing the paths in parallel.
+     */
+    public void setParallel(final boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Set the budget that limits the time spent by the searches and allows cancelling them.
+     * When the budget runs out the methods return the paths built so far, and the budget reports that the
+     * results are truncated.
+     *
+     * @param searchBudget the budget, or null to remove any limit.
+     */
+    public void setSearchBudget(final SearchBudget searchBudget) {
+        budget = searchBudget;
+    }
+
+    public MovementGraph getMovementGraph() {
+        return movementGraph;
+    }
+
+    /**
+     * identify all possible paths starting from base sector.
+     * The owner must be the one the movement graph was built for. If the relations differ from those captured by
+     * the movement graph, the paths are searched over a new graph built with the given relations.
+     *
+     * @param thisGame     the game to examine.
+     * @param ownerId      the owner of the unit.
+     * @param totMP        the total available MPs.
+     * @param maxLength    the maximum length in sectors.
+     * @param relationsMap the relations between the nations.
+     * @return a set of paths.
+     * @throws IllegalArgumentException if the owner is not the one of the movement graph.
+     * @deprecated the owner and the relations are those of the movement graph, use {@link #getAllPaths(int, int)}.
+     */
+    @Deprecated
+    public Set<PathDTO> getAllPaths(final Game thisGame,
+                                    final int ownerId,
+                                    final int totMP,
+                                    final int maxLength,
+                                    final Map<Integer, Map<Integer, Integer>> relationsMap) {
+        if (ownerId != movementGraph.getOwnerId()) {
+            throw new IllegalArgumentException("Movement graph built for owner " + movementGraph.getOwnerId()
+                    + " used for owner " + ownerId);
+        }
+
+        final RelationsSnapshot graphRelations = movementGraph.getRelations();
+        if (relationsMap == null) {
+            return getAllPaths(totMP, maxLength);
         }
 
-        // Add the edges of the graph
-        for (final SectorDTO sector : sectorsGraph.vertexSet()) {
-            createSector(sector.getX() - minX + 1, sector.getY() - minY + 1, navy);
+        final RelationsSnapshot relations = new RelationsSnapshot(relationsMap, graphRelations.getNations());
+        if (relations.hasSameRelations(graphRelations)) {
+            return getAllPaths(totMP, maxLength);
         }
+
+        // The relations have changed since the graph was built
+        final MovementShortestPath search = new MovementShortestPath(new MovementGraph(thisGame,
+                movementGraph.getWindow(), movementGraph.getUnitType(), ownerId, movementGraph.getTotWarShips(),
+                relations), baseX, baseY, maxNeutral, maxConquer);
+        search.setExecutorService(executorService);
+        search.setParallel(parallel);
+        search.setSearchBudget(budget);
+
+        final Set<PathDTO> paths = search.getAllPaths(totMP, maxLength);
+        lastTree = search.lastTree;
+        return paths;
     }
 
-    private boolean canCross(final Game thisGame, final int ownerId,
-                             final Map<Integer, Map<Integer, Integer>> relationsMap,
-                             final SectorDTO sector) {
-        // All units can move over Neutral Sectors
-        // or sectors owned by Friendly and Allied nations.
-        if (sector.getNationId() == ownerId) {
-            // this is the owner of the sector.
-            return true;
+    /**
+     * identify all possible paths starting from base sector.
+     * The relations of the owner are those captured by the movement graph.
+     *
+     * @param totMP     the total available MPs.
+     * @param maxLength the maximum length in sectors.
+     * @return a set of paths.
+     * @throws IllegalStateException if the paths of some sectors could not be built.
+     */
+    public Set<PathDTO> getAllPaths(final int totMP, final int maxLength) {
+        final Set<PathDTO> paths = new HashSet<PathDTO>();
+        final PathTree tree = searchPaths(totMP, maxLength, -1);
+        if (tree == null) {
+            return paths;
+        }
+
+        // Walk each subtree of the base sector once
+        final List<Callable<List<PathDTO>>> tasks = new ArrayList<Callable<List<PathDTO>>>();
+        for (int child = tree.firstChild[PathTree.BASE_NODE]; child >= 0; child = tree.nextSibling[child]) {
+            tasks.add(new PathTreeWalker(tree, child));
+        }
 
-        } else if (sector.getNationId() == NATION_NEUTRAL) {
-            // this is a neutral sector
-            return true;
+        executeTasks(tasks, tree.totReachable, paths);
+        return paths;
+    }
 
-        } else {
-            // Check Sector's relations against owner.
-            final int relation = relationsMap.get(sector.getNationId()).get(ownerId);
-
-            if (unitType == BAGGAGETRAIN || unitType == SHIP || unitType == FLEET) {
-                if (relation <= REL_TRADE) {
-                    for (Integer otherNation : otherNations) {
-                        if (otherNation != sector.getNationId()) {
-                            final int otherRelation = relationsMap.get(sector.getNationId()).get(otherNation);
-                            if (otherRelation > REL_PASSAGE) {
-                                return false;
-                            }
-                        }
-                    }
-                    return true;
-                }
-                return false;
+    /**
+     * Identify all possible paths starting from base sector and pass them to the consumer one by one,
+     * in increasing order of cost, so that no path is kept after the consumer has received it.
+     * The consumer is called by the calling thread and may stop the search at any point, for example after
+     * receiving the first paths it needs.
+     *
+     * @param totMP     the total available MPs.
+     * @param maxLength the maximum length in sectors.
+     * @param consumer  the receiver of the paths.
+     * @return the number of paths passed to the consumer.
+     */
+    public int getAllPaths(final int totMP, final int maxLength, final PathConsumer consumer) {
+        final PathTree tree = searchPaths(totMP, maxLength, -1);
+        if (tree == null) {
+            return 0;
+        }
 
-            } else if (relation <= REL_PASSAGE) {
-                return true;
+        int totPaths = 0;
+        for (final int index : tree.getSectorsByCost()) {
+            if (isExhausted()) {
+                break;
+            }
 
-            } else {
-                if (unitType == ARMY || unitType == CORPS || unitType == BRIGADE) {
-                    // Armies and Corps are also allowed to move over enemy territories
-                    // Need to check if we have war against sector's owner
-                    final int ourRelation = relationsMap.get(ownerId).get(sector.getNationId());
+            totPaths++;
+            if (!consumer.accept(buildPath(tree, index))) {
+                break;
+            }
+        }
 
-                    sector.setNeedsConquer(ourRelation == REL_WAR
-                            || (sector.getRegionId() != EUROPE && ourRelation == REL_COLONIAL_WAR));
+        return totPaths;
+    }
 
-                    return (ourRelation == REL_WAR
-                            || (sector.getRegionId() != EUROPE && ourRelation == REL_COLONIAL_WAR));
+    /**
+     * Identify all the sectors that can be reached starting from base sector, without building any path.
+     * The result of the search is retained so that the path to any of the sectors can be retrieved
+     * via {@link #getPath(int, int)}.
+     *
+     * @param totMP     the total available MPs.
+     * @param maxLength the maximum length in sectors.
+     * @return the cost of reaching each sector of the window.
+     */
+    public ReachabilityGrid getReachableSectors(final int totMP, final int maxLength) {
+        final int[] costs = new int[sectorsGraph.size()];
+        Arrays.fill(costs, ReachabilityGrid.UNREACHABLE);
+
+        int totReachable = 0;
+        final PathTree tree = searchPaths(totMP, maxLength, -1);
+        if (tree != null) {
+            for (int index = 0; index < costs.length; index++) {
+                if (tree.reachable[index]) {
+                    costs[index] = tree.csp.getCost(index);
                 }
             }
+            totReachable = tree.totReachable;
         }
 
-        return false;
+        return new ReachabilityGrid(minX - 1, minY - 1, sectorsGraph.getSizeX(), sectorsGraph.getSizeY(),
+                costs, totReachable);
     }
 
-    private boolean canForceMarch(final Game thisGame, final int ownerId,
-                                  final Map<Integer, Map<Integer, Integer>> relationsMap,
-                                  final SectorDTO sector) {
-        // All units can move over Neutral Sectors
-        // or sectors owned by Friendly and Allied nations.
-        if (sector.getNationId() == ownerId) {
-            // this is the owner of the sector.
-            return true;
+    /**
+     * Identify, in one search, the sectors that can be reached with the normal MPs and the sectors that can be
+     * reached by force march, i.e. through sectors owned by the unit's nation or its allies only.
+     * The result of the search is retained so that the path to any of the sectors of the normal layer can be
+     * retrieved via {@link #getPath(int, int)}.
+     *
+     * @param totMP        the total available MPs.
+     * @param forceMarchMP the total available MPs when force marching, never less than the normal MPs.
+     * @param maxLength    the maximum length in sectors.
+     * @return the cost of reaching each sector of the window, normally and by force march.
+     */
+    public ReachabilityGrid getReachableSectors(final int totMP, final int forceMarchMP, final int maxLength) {
+        final int[] costs = new int[sectorsGraph.size()];
+        final int[] forceMarchCosts = new int[sectorsGraph.size()];
+        Arrays.fill(costs, ReachabilityGrid.UNREACHABLE);
+        Arrays.fill(forceMarchCosts, ReachabilityGrid.UNREACHABLE);
+
+        int totReachable = 0;
+        final PathTree tree = searchPaths(totMP, maxLength, forceMarchMP);
+        if (tree != null) {
+            for (int index = 0; index < costs.length; index++) {
+                if (tree.reachable[index]) {
+                    costs[index] = tree.csp.getCost(index);
+                }
+                if (index != tree.baseIndex) {
+                    forceMarchCosts[index] = tree.csp.getForceMarchCost(index);
+                }
+            }
+            totReachable = tree.totReachable;
+        }
 
-        } else if (sector.getNationId() == NATION_NEUTRAL) {
-            // this is a neutral sector
-            return false;
+        return new ReachabilityGrid(minX - 1, minY - 1, sectorsGraph.getSizeX(), sectorsGraph.getSizeY(),
+                costs, totReachable, forceMarchCosts);
+    }
 
-        } else {
-            // Check Sector's relations against owner.
-            final int relation = relationsMap.get(sector.getNationId()).get(ownerId);
+    /**
+     * Build the path to the sector out of the result of the last search.
+     *
+     * @param posX the X coordinate of the target sector.
+     * @param posY the Y coordinate of the target sector.
+     * @return the path to the sector, or null if no search was made or the sector cannot be reached.
+     */
+    public PathDTO getPath(final int posX, final int posY) {
+        final PathTree tree = lastTree;
+        if (tree == null) {
+            return null;
+        }
 
-            return (relation == REL_ALLIANCE);
+        final int index = sectorsGraph.index(posX - minX + 1, posY - minY + 1);
+        if (index < 0 || !tree.reachable[index]) {
+            return null;
         }
+
+        return buildPath(tree, index);
     }
 
-    private boolean canEnterPort(final Game thisGame, final int ownerId,
-                                 final Map<Integer, Map<Integer, Integer>> relationsMap,
-                                 final SectorDTO sector) {
-        // Ships can move over Neutral Sectors
-        // or sectors owned by Friendly and Allied nations.
-        if (sector.getNationId() == NATION_NEUTRAL) {
-            // this is a neutral sector
-            return true;
+    /**
+     * Build the path to a reachable sector out of the shortest path tree.
+     *
+     * @param tree  the shortest path tree.
+     * @param index the index of the target sector.
+     * @return the path to the sector.
+     */
+    private PathDTO buildPath(final PathTree tree, final int index) {
+        final int[] nodePath = tree.getNodePath(index);
+        final List<PathSectorDTO> sectorsPath = new ArrayList<PathSectorDTO>(nodePath.length);
+        for (int hop = 0; hop < nodePath.length; hop++) {
+            final int prevNode = (hop > 0) ? nodePath[hop - 1] : -1;
+            final int nextNode = (hop + 1 < nodePath.length) ? nodePath[hop + 1] : -1;
+            sectorsPath.add(tree.clonePathSector(prevNode, nodePath[hop], nextNode));
+        }
+
+        return tree.createPath(sectorsPath, nodePath[nodePath.length - 1]);
+    }
 
-        } else if (sector.getNationId() == ownerId) {
-            // this is the owner of the sector.
-            return true;
+    /**
+     * Build the compact form of the path to the sector out of the result of the last search.
+     *
+     * @param posX the X coordinate of the target sector.
+     * @param posY the Y coordinate of the target sector.
+     * @return the encoded path to the sector, or null if no search was made or the sector cannot be reached.
+     */
+    public EncodedPath getEncodedPath(final int posX, final int posY) {
+        final PathTree tree = lastTree;
+        if (tree == null) {
+            return null;
+        }
 
-        } else {
-            // Check Sector's relations against owner.
-            final int relation = relationsMap.get(sector.getNationId()).get(ownerId);
+        final int index = sectorsGraph.index(posX - minX + 1, posY - minY + 1);
+        if (index < 0 || !tree.reachable[index]) {
+            return null;
+        }
 
-            return (totWarShips == 0 && relation <= REL_TRADE) || (relation <= REL_PASSAGE);
+        final int[] nodePath = tree.getNodePath(index);
+        final byte[] hops = new byte[nodePath.length];
+        for (int hop = 0; hop < nodePath.length; hop++) {
+            hops[hop] = tree.encodeHop((hop > 0) ? nodePath[hop - 1] : -1, nodePath[hop]);
         }
+
+        return tree.createEncodedPath(hops, nodePath[nodePath.length - 1]);
     }
 
     /**
-     * Add all edges for this sector.
+     * Identify all possible paths starting from base sector, in their compact form.
+     * The images of the path sectors are not built; use {@link EncodedPath#toPathDTO} when they are needed.
      *
-     * @param posX   the horizontal position of the sector.
-     * @param posY   the vertical position of the sector.
-     * @param isNavy if this is a sea movement.
+     * @param totMP     the total available MPs.
+     * @param maxLength the maximum length in sectors.
+     * @return a list of encoded paths.
      */
-    private void createSector(final int posX, final int posY, final boolean isNavy) {
-        addEdge(posX, posY, posX - 1, posY - 1, isNavy);
-        addEdge(posX, posY, posX - 1, posY, isNavy);
-        addEdge(posX, posY, posX - 1, posY + 1, isNavy);
-        addEdge(posX, posY, posX, posY - 1, isNavy);
-        addEdge(posX, posY, posX, posY + 1, isNavy);
-        addEdge(posX, posY, posX + 1, posY - 1, isNavy);
-        addEdge(posX, posY, posX + 1, posY, isNavy);
-        addEdge(posX, posY, posX + 1, posY + 1, isNavy);
+    public List<EncodedPath> getAllEncodedPaths(final int totMP, final int maxLength) {
+        final List<EncodedPath> paths = new ArrayList<EncodedPath>();
+        final PathTree tree = searchPaths(totMP, maxLength, -1);
+        if (tree == null) {
+            return paths;
+        }
+
+        final byte[] prefix = new byte[maxLength < sectorsGraph.size() ? maxLength + 1 : sectorsGraph.size() + 1];
+        prefix[0] = tree.encodeHop(-1, PathTree.BASE_NODE);
+        for (int child = tree.firstChild[PathTree.BASE_NODE]; child >= 0; child = tree.nextSibling[child]) {
+            encodeSubtree(tree, child, PathTree.BASE_NODE, prefix, 1, paths);
+        }
+
+        return paths;
     }
 
     /**
-     * Add an edge to the directed weighted graph.
+     * Build the encoded path to the node and continue with its children.
      *
-     * @param posX   the X coordinate of the vertex.
-     * @param posY   the Y coordinate of the vertex.
-     * @param thatX  the X coordinate of the neighboring vertex.
-     * @param thatY  the Y coordinate of the neighboring vertex.
-     * @param isNavy if this is a sea movement.
-     */
-    private void addEdge(final int posX, final int posY, final int thatX, final int thatY, final boolean isNavy) {
-        if (sectors[thatX][thatY] != null && sectorsGraph.containsVertex(sectors[thatX][thatY])) {
-            final SimpleWeightedEdge thisEdge = new SimpleWeightedEdge();
-            final int mpCost;
-            if (isNavy) {
-                // Fixed costs for Fleets & Ships
-                // It will cost one extra movement point per storm coordinate passing through
-                if (sectors[thatX][thatY].getStorm() > 0) {
-                    mpCost = 2;
-
-                } else {
-                    mpCost = 1;
-                }
+     * @param tree   the shortest path tree.
+     * @param node   the node of the tree.
+     * @param parent the previous node.
+     * @param prefix the bytes of the path that leads to the node, filled in place.
+     * @param length the number of sectors of the path before this node.
+     * @param paths  the list of paths to fill.
+     */
+    private void encodeSubtree(final PathTree tree, final int node, final int parent,
+                               final byte[] prefix, final int length, final List<EncodedPath> paths) {
+        if (isExhausted()) {
+            return;
+        }
 
-            } else {
-                // Use Terrain base costs plus modifiers
-                mpCost = sectors[thatX][thatY].getTerrain().getActualMPs();
-            }
+        prefix[length] = tree.encodeHop(parent, node);
+        if (tree.target[node]) {
+            paths.add(tree.createEncodedPath(Arrays.copyOf(prefix, length + 1), node));
+        }
 
-            sectorsGraph.setEdgeWeight(thisEdge, mpCost);
-            sectorsGraph.addEdge(sectors[posX][posY], sectors[thatX][thatY], thisEdge);
+        // Continue with the paths that go through this sector
+        for (int child = tree.firstChild[node]; child >= 0; child = tree.nextSibling[child]) {
+            encodeSubtree(tree, child, node, prefix, length + 1, paths);
         }
     }
 
     /**
-     * identify all possible paths starting from base sector.
+     * Identify the cheapest path from base sector to the target sector.
+     * Only the part of the window that lies towards the target is examined, unless the cheapest path exceeds the
+     * conquer limits; in that case the cheapest path that respects them is searched over the whole window.
+     *
+     * The length of the path is not limited.
+     *
+     * @param posX  the X coordinate of the target sector.
+     * @param posY  the Y coordinate of the target sector.
+     * @param totMP the total available MPs.
+     * @return the path to the sector, or null if the sector cannot be reached.
+     */
+    public PathDTO getShortestPath(final int posX, final int posY, final int totMP) {
+        return getShortestPath(posX, posY, totMP, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Identify the cheapest path from base sector to the target sector within the given length.
+     * Only the part of the window that lies towards the target is examined, unless the cheapest path exceeds the
+     * conquer or the length limits; in that case the cheapest path that respects them is searched over the whole
+     * window. The result of the last search, used by {@link #getPath(int, int)}, is not affected.
      *
+     * @param posX      the X coordinate of the target sector.
+     * @param posY      the Y coordinate of the target sector.
      * @param totMP     the total available MPs.
      * @param maxLength the maximum length in sectors.
-     * @return a set of paths.
+     * @return the path to the sector, or null if the sector cannot be reached.
      */
-    public Set<PathDTO> getAllPaths(final Game thisGame,
-                                    final int ownerId,
-                                    final int totMP,
-                                    final int maxLength,
-                                    final Map<Integer, Map<Integer, Integer>> relationsMap) {
-        final Set<PathDTO> paths = new HashSet<PathDTO>();
-        final int actualBaseX = baseX - minX + 1;
-        final int actualBaseY = baseY - minY + 1;
+    public PathDTO getShortestPath(final int posX, final int posY, final int totMP, final int maxLength) {
+        final int baseIndex = sectorsGraph.index(baseX - minX + 1, baseY - minY + 1);
+        final int targetIndex = sectorsGraph.index(posX - minX + 1, posY - minY + 1);
+        if (!movementGraph.isStartSector(baseIndex)
+                || !sectorsGraph.containsVertex(targetIndex)
+                || baseIndex == targetIndex) {
+            return null;
+        }
 
-        if (actualBaseX < 0
-                || actualBaseY < 0
-                || actualBaseX > sectors.length
-                || actualBaseY > sectors[0].length) {
-            return paths;
+        final AStarShortestPath asp = new AStarShortestPath(sectorsGraph, baseIndex, targetIndex, totMP, budget);
+        final int[] cellPath = asp.getPath();
+        if (cellPath == null) {
+            return null;
         }
 
-        if (!sectorsGraph.containsVertex(sectors[actualBaseX][actualBaseY])) {
-            return paths;
+        // the number of edges of the path must not exceed the maximum length
+        final PathDTO path = (cellPath.length - 1 <= maxLength) ? createPath(cellPath) : null;
+        if (path != null) {
+            return path;
         }
 
-        // Compute single-source shortest paths
-        final BellmanFordShortestPath<SectorDTO, SimpleWeightedEdge> dsp = new BellmanFordShortestPath<SectorDTO, SimpleWeightedEdge>(sectorsGraph, sectors[actualBaseX][actualBaseY], maxLength);
+        // Look for a more expensive path with fewer conquests or fewer sectors
+        final PathTree tree = createTree(totMP, maxLength, -1);
+        if (tree == null || !tree.reachable[targetIndex]) {
+            return null;
+        }
 
-        final ExecutorService executorService = Executors.newFixedThreadPool(Engine.MAX_THREADS);
-        final List<Future<PathDTO>> futures = new ArrayList<Future<PathDTO>>();
+        return buildPath(tree, targetIndex);
+    }
 
-        // Add all shortest paths
-        final int totSize = sectors.length;
-        for (int posX = 0; posX < totSize; posX++) {
-            for (int posY = 0; posY < totSize; posY++) {
-                if (posX == actualBaseX && posY == actualBaseY) {
-                    continue;
+    /**
+     * Build the path that goes through the given sectors.
+     *
+     * @param cellPath the indices of the sectors of the path, starting from base sector.
+     * @return the path, or null if the path exceeds the conquer limits.
+     */
+    private PathDTO createPath(final int[] cellPath) {
+        final int[] counters = {maxNeutral, maxConquer};
+        final List<PathSectorDTO> sectorsPath = new ArrayList<PathSectorDTO>(cellPath.length);
+        int totalCost = 0;
+        boolean pathForceMarch = true;
+        for (int hop = 0; hop < cellPath.length; hop++) {
+            final SectorDTO theSector = getSector(cellPath[hop]);
+            final int prevIndex = (hop > 0) ? cellPath[hop - 1] : -1;
+            final int nextIndex = (hop + 1 < cellPath.length) ? cellPath[hop + 1] : -1;
+            final boolean sectorForceMarch = movementGraph.getCanForceMarch(cellPath[hop]);
+            // the unit already stands on the base sector
+            boolean sectorNeedsConquer = false;
+
+            if (hop > 0) {
+                // Update conquer counters
+                final int conquerStatus = enterSector(cellPath[hop], counters);
+                if (conquerStatus < 0) {
+                    return null;
                 }
 
-                if (sectorsGraph.containsVertex(sectors[posX][posY])) {
-                    if (dsp.getCost(sectors[posX][posY]) <= totMP) {
-                        final SectorDTO thisSector = sectors[posX][posY];
-                        final SectorDTO actualBase = sectors[actualBaseX][actualBaseY];
-
-                        futures.add(executorService.submit(new Callable<PathDTO>() {
-                            public PathDTO call() {
-                                final StringBuilder strBuilder = new StringBuilder();
-                                final StringBuilder pathBuilder = new StringBuilder();
-
-                                int counterNeutral = maxNeutral;
-                                int counterConquer = maxConquer;
-
-                                // Extract path
-                                final List<SimpleWeightedEdge> edgePath = dsp.getPathEdgeList(thisSector);
-                                final List<PathSectorDTO> sectorsPath = new ArrayList<PathSectorDTO>();
-
-                                // Initial sector
-                                PathSectorDTO prevSector = cloneImportant(thisGame, ownerId, relationsMap, actualBase);
-                                sectorsPath.add(prevSector);
-                                strBuilder.append(prevSector.positionToString());
-
-                                int totalCost = 0;
-                                PathSectorDTO dblPrevSector = null;
-
-                                // detect if path includes one non-allied sector
-                                boolean canForceMarch = true;
-
-                                for (final SimpleWeightedEdge edge : edgePath) {
-                                    final SectorDTO theSector = (SectorDTO) edge.getTarget();
-                                    final PathSectorDTO pathSector = cloneImportant(thisGame, ownerId, relationsMap, theSector);
-
-                                    canForceMarch &= pathSector.getCanForceMarch();
-
-                                    // Find image to use
-                                    if (dblPrevSector != null) {
-                                        final String from = getStartingDirection(dblPrevSector.getX(), dblPrevSector.getY(), prevSector.getX(), prevSector.getY());
-                                        final String to = getEndingDirection(prevSector.getX(), prevSector.getY(), pathSector.getX(), pathSector.getY());
-                                        prevSector.setPath("move-" + from + "-" + to);
-                                        pathBuilder.append(prevSector.getPath());
-                                        pathBuilder.append(" ");
-
-                                    } else {
-                                        // fix image for starting sector
-                                        final String to = getEndingDirection(prevSector.getX(), prevSector.getY(), pathSector.getX(), pathSector.getY());
-                                        prevSector.setPath("start-" + to);
-                                        pathBuilder.append(prevSector.getPath());
-                                        pathBuilder.append(" ");
-                                    }
-
-                                    // Update conquer counters
-                                    if (theSector.getTerrainId() != TERRAIN_O && theSector.getNationId() == NATION_NEUTRAL) {
-                                        strBuilder.append(", ");
-                                        strBuilder.append(pathSector.positionToString());
-
-                                        if (counterNeutral > 0) {
-                                            strBuilder.append("[N");
-                                            strBuilder.append(counterNeutral);
-                                            strBuilder.append("]");
-
-                                            counterNeutral--;
-                                            pathSector.setNeedsConquer(true);
-                                        }
-
-                                    } else if (pathSector.getNeedsConquer()) {
-                                        if (counterConquer <= 0) {
-                                            break;
-                                        }
-
-                                        strBuilder.append(", ");
-                                        strBuilder.append(pathSector.positionToString());
-                                        strBuilder.append("[C");
-                                        strBuilder.append(counterNeutral);
-                                        strBuilder.append("]");
-
-                                        counterConquer--;
-                                    } else {
-
-                                        strBuilder.append(", ");
-                                        strBuilder.append(pathSector.positionToString());
-                                    }
-
-                                    // Detect images
-                                    dblPrevSector = prevSector;
-                                    prevSector = pathSector;
-
-                                    // Store new sector in the path
-                                    sectorsPath.add(pathSector);
-                                    totalCost += pathSector.getActualMPs();
-                                }
-
-                                if (dblPrevSector != null) {
-                                    // fix image for ending sector
-                                    final String from = getEndingDirection(dblPrevSector.getX(), dblPrevSector.getY(), prevSector.getX(), prevSector.getY());
-                                    prevSector.setPath("end-" + from);
-                                    pathBuilder.append(prevSector.getPath());
-                                    pathBuilder.append(" ");
-
-                                    final PathDTO thisDTO = new PathDTO();
-                                    thisDTO.setPathSectors(sectorsPath);
-                                    thisDTO.setTotalCost(totalCost);
-                                    thisDTO.setTotLength(sectorsPath.size());
-                                    thisDTO.setTotalConquer(maxConquer - counterConquer);
-                                    thisDTO.setTotalConquerNeutral(maxNeutral - counterNeutral);
-                                    thisDTO.setCanForceMarch(canForceMarch);
-                                    return thisDTO;
-                                }
-
-
-                                return null;
-                            }
-                        }));
-                    }
-                }
+                sectorNeedsConquer = (conquerStatus > 0);
+                totalCost += theSector.getTerrain().getActualMPs();
+                pathForceMarch &= sectorForceMarch;
             }
+
+            sectorsPath.add(clonePathSector(theSector, sectorNeedsConquer, sectorForceMarch,
+                    getPathImage(prevIndex, cellPath[hop], nextIndex)));
         }
 
-        // wait for the execution all tasks
-        try {
-            // wait for all tasks to complete before continuing
-            for (Future<PathDTO> task : futures) {
-                final PathDTO result = task.get();
-                if (result != null) {
-                    paths.add(result);
-                }
+        final PathDTO thisDTO = new PathDTO();
+        thisDTO.setPathSectors(sectorsPath);
+        thisDTO.setTotalCost(totalCost);
+        thisDTO.setTotLength(sectorsPath.size());
+        thisDTO.setTotalConquer(maxConquer - counters[1]);
+        thisDTO.setTotalConquerNeutral(maxNeutral - counters[0]);
+        thisDTO.setCanForceMarch(pathForceMarch);
+        return thisDTO;
+    }
+
+    /**
+     * Update the conquer counters for entering the sector.
+     *
+     * @param index    the index of the sector entered.
+     * @param counters the number of neutral and enemy sectors that can still be conquered, updated in place.
+     * @return 1 if the sector needs to be conquered, 0 if not, or -1 if the sector cannot be conquered.
+     */
+    private int enterSector(final int index, final int[] counters) {
+        final SectorDTO theSector = getSector(index);
+        final boolean needsConquer = movementGraph.getNeedsConquer(index);
+        if (theSector.getTerrainId() != TERRAIN_O && theSector.getNationId() == NATION_NEUTRAL) {
+            if (counters[0] > 0) {
+                counters[0]--;
+                return 1;
             }
 
-            executorService.shutdownNow();
+        } else if (needsConquer) {
+            if (counters[1] <= 0) {
+                return -1;
+            }
 
-        } catch (Exception ex) {
-            LOGGER.error("Task execution interrupted", ex);
+            counters[1]--;
+            return 1;
         }
 
-        return paths;
+        return needsConquer ? 1 : 0;
     }
 
     /**
-     * Convert the DB object into a DTO.
+     * Check if the budget of the searches has run out.
      *
-     * @param value the DB object to convert.
-     * @return the DTO object.
+     * @return true if the search must stop.
      */
+    private boolean isExhausted() {
+        return budget != null && budget.isExhausted();
+    }
 
-    private PathSectorDTO cloneImportant(final Game thisGame, final int ownerId,
-                                         final Map<Integer, Map<Integer, Integer>> relationsMap,
-                                         final SectorDTO value) {
-        final PathSectorDTO empSec = new PathSectorDTO();
-        empSec.setRegionId(value.getRegionId());
-        empSec.setActualMPs(value.getTerrain().getActualMPs());
-        empSec.setX(value.getX());
-        empSec.setY(value.getY());
-        empSec.setPath("");
-        empSec.setNeedsConquer(value.getNeedsConquer());
-        empSec.setCanForceMarch(canForceMarch(thisGame, ownerId, relationsMap, value));
-        return empSec;
+    /**
+     * Compute the shortest paths starting from base sector and retain the result.
+     *
+     * @param totMP        the total available MPs.
+     * @param maxLength    the maximum length in sectors.
+     * @param forceMarchMP the total available MPs when force marching, or -1 to skip the force march layer.
+     * @return the shortest path tree, or null if the base sector is not part of the graph.
+     */
+    private PathTree searchPaths(final int totMP, final int maxLength, final int forceMarchMP) {
+        final PathTree tree = createTree(totMP, maxLength, forceMarchMP);
+        if (tree != null) {
+            lastTree = tree;
+        }
+        return tree;
+    }
+
+    /**
+     * Compute the shortest paths starting from base sector, without retaining the result.
+     *
+     * @param totMP        the total available MPs.
+     * @param maxLength    the maximum length in sectors.
+     * @param forceMarchMP the total available MPs when force marching, or -1 to skip the force march layer.
+     * @return the shortest path tree, or null if the base sector is not part of the graph.
+     */
+    private PathTree createTree(final int totMP, final int maxLength, final int forceMarchMP) {
+        final int baseIndex = sectorsGraph.index(baseX - minX + 1, baseY - minY + 1);
+        if (!movementGraph.isStartSector(baseIndex)) {
+            return null;
+        }
+
+        // Compute single-source shortest paths up to the available MPs and within the conquer limits
+        final ConstrainedShortestPath csp = new ConstrainedShortestPath(sectorsGraph, baseIndex, totMP, maxLength,
+                movementGraph.getConquerKinds(), maxNeutral, maxConquer,
+                (forceMarchMP < 0) ? null : movementGraph.getForceMarchSectors(), forceMarchMP, budget);
+        return new PathTree(csp, baseIndex);
     }
 
-    private String getEndingDirection(final int startX, final int startY,
-                                      final int thisX, final int thisY) {
-        final StringBuilder direction = new StringBuilder();
+    /**
+     * The shortest path tree rooted at the base sector.
+     * The nodes of the tree are the labels of the search that lie on the best path of some sector; a sector may
+     * appear more than once, e.g. when the best path of a farther sector goes around an enemy sector.
+     * For each node it keeps the cost and the force march status of the path that leads to it, so that the paths
+     * can be built in any order.
+     */
+    private final class PathTree {
+
+        /**
+         * The node of the base sector.
+         */
+        private static final int BASE_NODE = 0;
+
+        /**
+         * The result of the search.
+         */
+        private final ConstrainedShortestPath csp;
+
+        /**
+         * The index of the base sector.
+         */
+        private final int baseIndex;
+
+        /**
+         * The first child of each node in the shortest path tree.
+         */
+        private final int[] firstChild;
+
+        /**
+         * The next sibling of each node in the shortest path tree.
+         */
+        private final int[] nextSibling;
+
+        /**
+         * Marks the sectors that can be reached within the MP and the conquer limits.
+         */
+        private final boolean[] reachable;
+
+        /**
+         * Marks the nodes that hold the best path of their sector.
+         */
+        private final boolean[] target;
+
+        /**
+         * The sum of the terrain costs of the path to each node.
+         */
+        private final int[] totalCost;
+
+        /**
+         * Marks the nodes whose sector needs to be conquered.
+         */
+        private final boolean[] needsConquer;
+
+        /**
+         * Marks the nodes whose path includes only sectors where the unit can force march.
+         */
+        private final boolean[] pathForceMarch;
+
+        /**
+         * The number of reachable sectors.
+         */
+        private int totReachable;
+
+        PathTree(final ConstrainedShortestPath csp, final int baseIndex) {
+            final int size = csp.getTotLabels();
+            this.csp = csp;
+            this.baseIndex = baseIndex;
+            firstChild = new int[size];
+            nextSibling = new int[size];
+            reachable = new boolean[sectorsGraph.size()];
+            target = new boolean[size];
+            totalCost = new int[size];
+            needsConquer = new boolean[size];
+            pathForceMarch = new boolean[size];
+
+            // Keep the nodes that lead to the best path of each sector
+            final boolean[] used = new boolean[size];
+            used[BASE_NODE] = true;
+            for (int index = 0; index < reachable.length; index++) {
+                final int node = csp.getBestLabel(index);
+                if (index == baseIndex || node < 0) {
+                    continue;
+                }
+
+                reachable[index] = true;
+                totReachable++;
+                target[node] = true;
+                for (int ancestor = node; !used[ancestor]; ancestor = csp.getLabelPredecessor(ancestor)) {
+                    used[ancestor] = true;
+                }
+            }
+
+            // Build the shortest path tree out of the predecessors
+            Arrays.fill(firstChild, -1);
+            for (int node = size - 1; node > BASE_NODE; node--) {
+                if (used[node]) {
+                    final int parent = csp.getLabelPredecessor(node);
+                    nextSibling[node] = firstChild[parent];
+                    firstChild[parent] = node;
+                }
+            }
+
+            // the unit already stands on the base sector
+            pathForceMarch[BASE_NODE] = true;
+
+            // Each label is created after its predecessor, so each parent is processed before its children
+            for (int node = BASE_NODE + 1; node < size; node++) {
+                if (used[node]) {
+                    final int parent = csp.getLabelPredecessor(node);
+                    final int index = csp.getLabelCell(node);
+                    totalCost[node] = totalCost[parent] + getSector(index).getTerrain().getActualMPs();
+                    needsConquer[node] = csp.isConquered(node) || movementGraph.getNeedsConquer(index);
+                    pathForceMarch[node] = pathForceMarch[parent] && movementGraph.getCanForceMarch(index);
+                }
+            }
+        }
+
+        /**
+         * Get the reachable sectors sorted by the cost of their path.
+         *
+         * @return the indices of the sectors.
+         */
+        private int[] getSectorsByCost() {
+            // Count the sectors of each cost
+            int maxCost = 0;
+            for (int index = 0; index < reachable.length; index++) {
+                if (reachable[index]) {
+                    maxCost = Math.max(maxCost, csp.getCost(index));
+                }
+            }
+
+            final int[] start = new int[maxCost + 2];
+            for (int index = 0; index < reachable.length; index++) {
+                if (reachable[index]) {
+                    start[csp.getCost(index) + 1]++;
+                }
+            }
+            for (int cost = 1; cost < start.length; cost++) {
+                start[cost] += start[cost - 1];
+            }
+
+            final int[] sorted = new int[totReachable];
+            for (int index = 0; index < reachable.length; index++) {
+                if (reachable[index]) {
+                    sorted[start[csp.getCost(index)]++] = index;
+                }
+            }
 
-        if (startX < thisX && startY == thisY) {
-            direction.append("R");
+            return sorted;
+        }
 
-        } else if (startX < thisX && startY < thisY) {
-            direction.append("RD");
+        /**
+         * Get the nodes of the best path to the sector.
+         *
+         * @param index the index of the target sector.
+         * @return the nodes of the path, starting from the base sector.
+         */
+        private int[] getNodePath(final int index) {
+            final int node = csp.getBestLabel(index);
+            final int[] nodePath = new int[csp.getLabelHops(node) + 1];
+            int ancestor = node;
+            for (int pos = nodePath.length - 1; pos >= 0; pos--) {
+                nodePath[pos] = ancestor;
+                ancestor = csp.getLabelPredecessor(ancestor);
+            }
 
-        } else if (startX < thisX && startY > thisY) {
-            direction.append("RU");
+            return nodePath;
+        }
 
-        } else if (startX > thisX && startY == thisY) {
-            direction.append("L");
+        /**
+         * Convert the sector of the node into a path sector.
+         *
+         * @param prevNode the previous node of the path, or -1 if this is the starting sector.
+         * @param node     the node.
+         * @param nextNode the next node of the path, or -1 if this is the ending sector.
+         * @return the DTO object.
+         */
+        private PathSectorDTO clonePathSector(final int prevNode, final int node, final int nextNode) {
+            final int index = csp.getLabelCell(node);
+            return MovementShortestPath.this.clonePathSector(getSector(index), needsConquer[node],
+                    movementGraph.getCanForceMarch(index),
+                    getPathImage((prevNode < 0) ? -1 : csp.getLabelCell(prevNode), index,
+                            (nextNode < 0) ? -1 : csp.getLabelCell(nextNode)));
+        }
 
-        } else if (startX > thisX && startY < thisY) {
-            direction.append("LD");
+        /**
+         * Create the DTO of the path to the node.
+         *
+         * @param sectorsPath the sectors of the path.
+         * @param node        the node of the target sector.
+         * @return the DTO object.
+         */
+        private PathDTO createPath(final List<PathSectorDTO> sectorsPath, final int node) {
+            final PathDTO thisDTO = new PathDTO();
+            thisDTO.setPathSectors(sectorsPath);
+            thisDTO.setTotalCost(totalCost[node]);
+            thisDTO.setTotLength(sectorsPath.size());
+            thisDTO.setTotalConquer(maxConquer - csp.getRemainingConquer(node));
+            thisDTO.setTotalConquerNeutral(maxNeutral - csp.getRemainingNeutral(node));
+            thisDTO.setCanForceMarch(pathForceMarch[node]);
+            return thisDTO;
+        }
 
-        } else if (startX > thisX && startY > thisY) {
-            direction.append("LU");
+        /**
+         * Encode a sector of a path.
+         *
+         * @param parent the previous node, or -1 for the base sector.
+         * @param node   the node of the sector.
+         * @return the byte of the sector.
+         */
+        private byte encodeHop(final int parent, final int node) {
+            final int index = csp.getLabelCell(node);
+            return EncodedPath.encodeHop((parent < 0) ? -1 : sectorsGraph.direction(csp.getLabelCell(parent), index),
+                    needsConquer[node], movementGraph.getCanForceMarch(index));
+        }
 
-        } else if (startX == thisX && startY < thisY) {
-            direction.append("D");
+        /**
+         * Create the compact form of the path to the node.
+         *
+         * @param hops the bytes of the sectors of the path.
+         * @param node the node of the target sector.
+         * @return the encoded path.
+         */
+        private EncodedPath createEncodedPath(final byte[] hops, final int node) {
+            final SectorDTO base = getSector(baseIndex);
+            return new EncodedPath(base.getRegionId(), base.getX(), base.getY(), hops, totalCost[node],
+                    maxConquer - csp.getRemainingConquer(node), maxNeutral - csp.getRemainingNeutral(node),
+                    pathForceMarch[node]);
+        }
+    }
 
-        } else if (startX == thisX && startY > thisY) {
-            direction.append("U");
+    /**
+     * Execute the tasks and collect the paths computed.
+     * If there are only a few target sectors the tasks are executed directly by the calling thread,
+     * otherwise they are submitted to the executor. If any task fails the remaining tasks are cancelled and an
+     * exception is thrown, so that an incomplete set of paths is never returned as if it were complete.
+     *
+     * @param tasks      the tasks to execute.
+     * @param totTargets the total number of target sectors.
+     * @param paths      the set of paths to fill.
+     * @throws IllegalStateException if a task fails or the calling thread is interrupted.
+     */
+    private void executeTasks(final List<Callable<List<PathDTO>>> tasks, final int totTargets,
+                              final Set<PathDTO> paths) {
+        if (!parallel || totTargets < MIN_PARALLEL_TARGETS || tasks.size() < 2) {
+            for (final Callable<List<PathDTO>> task : tasks) {
+                try {
+                    paths.addAll(task.call());
+
+                } catch (RuntimeException ex) {
+                    throw ex;
+
+                } catch (Exception ex) {
+                    throw new IllegalStateException("Path computation failed", ex);
+                }
+            }
+            return;
         }
 
-        return direction.toString();
+        final ExecutorService executor = (executorService == null) ? MovementExecutor.getInstance() : executorService;
+        final List<Future<List<PathDTO>>> futures = new ArrayList<Future<List<PathDTO>>>();
+        try {
+            for (final Callable<List<PathDTO>> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+
+            // wait for all tasks to complete before continuing
+            for (final Future<List<PathDTO>> task : futures) {
+                paths.addAll(task.get());
+            }
+
+        } catch (InterruptedException ex) {
+            cancelTasks(futures);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Path computation interrupted", ex);
+
+        } catch (ExecutionException ex) {
+            cancelTasks(futures);
+            throw new IllegalStateException("Path computation failed", ex.getCause());
+
+        } catch (RuntimeException ex) {
+            cancelTasks(futures);
+            throw ex;
+        }
     }
 
-    private String getStartingDirection(final int startX, final int startY,
-                                        final int thisX, final int thisY) {
-        final StringBuilder direction = new StringBuilder();
+    /**
+     * Cancel the tasks, since nobody will receive their paths.
+     *
+     * @param futures the tasks submitted.
+     */
+    private static void cancelTasks(final List<Future<List<PathDTO>>> futures) {
+        for (final Future<List<PathDTO>> task : futures) {
+            task.cancel(true);
+        }
+    }
 
-        if (startX < thisX && startY == thisY) {
-            direction.append("L");
+    /**
+     * Walks a subtree of the shortest path tree, in depth-first order, and builds the path to each sector.
+     * The sectors of each tree edge are converted once and shared by the paths of all the descendants.
+     */
+    private final class PathTreeWalker
+            implements Callable<List<PathDTO>> {
+
+        /**
+         * The shortest path tree.
+         */
+        private final PathTree tree;
+
+        /**
+         * The child of the base node that is the root of the subtree.
+         */
+        private final int rootNode;
+
+        /**
+         * The sectors of the path that leads to the node currently visited.
+         */
+        private final List<PathSectorDTO> prefix;
+
+        /**
+         * The paths found.
+         */
+        private final List<PathDTO> paths;
+
+        PathTreeWalker(final PathTree tree, final int rootNode) {
+            this.tree = tree;
+            this.rootNode = rootNode;
+            prefix = new ArrayList<PathSectorDTO>();
+            paths = new ArrayList<PathDTO>();
+        }
 
-        } else if (startX < thisX && startY < thisY) {
-            direction.append("LU");
+        public List<PathDTO> call() {
+            prefix.add(tree.clonePathSector(-1, PathTree.BASE_NODE, rootNode));
 
-        } else if (startX < thisX && startY > thisY) {
-            direction.append("LD");
+            visit(rootNode, PathTree.BASE_NODE);
+            return paths;
+        }
 
-        } else if (startX > thisX && startY == thisY) {
-            direction.append("R");
+        /**
+         * Build the path to the node and continue with its children.
+         *
+         * @param node   the node of the tree.
+         * @param parent the previous node.
+         */
+        private void visit(final int node, final int parent) {
+            if (isExhausted()) {
+                return;
+            }
 
-        } else if (startX > thisX && startY < thisY) {
-            direction.append("RU");
+            if (tree.target[node]) {
+                final List<PathSectorDTO> sectorsPath = new ArrayList<PathSectorDTO>(prefix.size() + 1);
+                sectorsPath.addAll(prefix);
+                sectorsPath.add(tree.clonePathSector(parent, node, -1));
+                paths.add(tree.createPath(sectorsPath, node));
+            }
 
-        } else if (startX > thisX && startY > thisY) {
-            direction.append("RD");
+            // Continue with the paths that go through this sector
+            for (int child = tree.firstChild[node]; child >= 0; child = tree.nextSibling[child]) {
+                prefix.add(tree.clonePathSector(parent, node, child));
 
-        } else if (startX == thisX && startY < thisY) {
-            direction.append("U");
+                visit(child, node);
 
-        } else if (startX == thisX && startY > thisY) {
-            direction.append("D");
+                prefix.remove(prefix.size() - 1);
+            }
         }
+    }
+
+    /**
+     * Get the image of a sector of the path.
+     *
+     * @param prevIndex the index of the previous sector of the path, or -1 if this is the starting sector.
+     * @param index     the index of the sector.
+     * @param nextIndex the index of the next sector of the path, or -1 if this is the ending sector.
+     * @return the image to use.
+     */
+    private String getPathImage(final int prevIndex, final int index, final int nextIndex) {
+        return EncodedPath.getPathImage((prevIndex < 0) ? -1 : sectorsGraph.direction(prevIndex, index),
+                (nextIndex < 0) ? -1 : sectorsGraph.direction(index, nextIndex));
+    }
+
+    /**
+     * Get the sector of the window that corresponds to the index of the graph.
+     *
+     * @param index the index of the sector in the graph.
+     * @return the sector.
+     */
+    private SectorDTO getSector(final int index) {
+        return movementGraph.getSector(index);
+    }
 
-        return direction.toString();
+    /**
+     * Convert the DB object into a DTO.
+     *
+     * @param value         the DB object to convert.
+     * @param needsConquer  if the sector needs to be conquered.
+     * @param canForceMarch if the unit can force march on the sector.
+     * @param path          the image of the path.
+     * @return the DTO object.
+     */
+    private PathSectorDTO clonePathSector(final SectorDTO value,
+                                          final boolean needsConquer,
+                                          final boolean canForceMarch,
+                                          final String path) {
+        final PathSectorDTO empSec = new PathSectorDTO();
+        empSec.setRegionId(value.getRegionId());
+        empSec.setActualMPs(value.getTerrain().getActualMPs());
+        empSec.setX(value.getX());
+        empSec.setY(value.getY());
+        empSec.setPath(path);
+        empSec.setNeedsConquer(needsConquer);
+        empSec.setCanForceMarch(canForceMarch);
+        return empSec;
     }
 
 }
@@ -0,0 +1,18 @@
+package com.eaw1805.algorithms;
+
+import com.eaw1805.data.dto.web.movement.PathDTO;
+
+/**
+ * Receives the movement paths one by one, as soon as each one is built.
+ */
+public interface PathConsumer {
+
+    /**
+     * Receive the next path.
+     *
+     * @param path the path.
+     * @return true to receive more paths, false to stop building them.
+     */
+    boolean accept(PathDTO path);
+
+}
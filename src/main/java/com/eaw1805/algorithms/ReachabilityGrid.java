@@ -0,0 +1,206 @@
+package com.eaw1805.algorithms;
+
+/**
+ * The sectors that a unit can reach along with the MP cost of reaching them.
+ * The costs are kept in a flat array over a rectangular window of the map, so that the movement overlay can be
+ * drawn without building any path. Optionally a second layer keeps the sectors that the unit can reach by force march.
+ */
+public class ReachabilityGrid {
+
+    /**
+     * The sector cannot be reached.
+     */
+    public static final int LAYER_NONE = 0;
+
+    /**
+     * The sector can be reached with the normal MPs.
+     */
+    public static final int LAYER_NORMAL = 1;
+
+    /**
+     * The sector can be reached only by force march.
+     */
+    public static final int LAYER_FORCE_MARCH = 2;
+
+    /**
+     * The cost of the sectors that are not reachable.
+     */
+    public static final int UNREACHABLE = DialShortestPath.UNREACHABLE;
+
+    /**
+     * The X coordinate of the first column of the grid.
+     */
+    private final int originX;
+
+    /**
+     * The Y coordinate of the first row of the grid.
+     */
+    private final int originY;
+
+    /**
+     * The horizontal size of the grid.
+     */
+    private final int sizeX;
+
+    /**
+     * The vertical size of the grid.
+     */
+    private final int sizeY;
+
+    /**
+     * The cost of each sector, indexed by (x - originX) * sizeY + (y - originY).
+     */
+    private final int[] costs;
+
+    /**
+     * The number of reachable sectors.
+     */
+    private final int totReachable;
+
+    /**
+     * The cost of reaching each sector by force march, or null if the force march layer was not computed.
+     */
+    private final int[] forceMarchCosts;
+
+    /**
+     * Default constructor.
+     *
+     * @param originX      the X coordinate of the first column of the grid.
+     * @param originY      the Y coordinate of the first row of the grid.
+     * @param sizeX        the horizontal size of the grid.
+     * @param sizeY        the vertical size of the grid.
+     * @param costs        the cost of each sector.
+     * @param totReachable the number of reachable sectors.
+     */
+    public ReachabilityGrid(final int originX, final int originY,
+                            final int sizeX, final int sizeY,
+                            final int[] costs, final int totReachable) {
+        this(originX, originY, sizeX, sizeY, costs, totReachable, null);
+    }
+
+    /**
+     * Constructor that also keeps the force march layer.
+     *
+     * @param originX         the X coordinate of the first column of the grid.
+     * @param originY         the Y coordinate of the first row of the grid.
+     * @param sizeX           the horizontal size of the grid.
+     * @param sizeY           the vertical size of the grid.
+     * @param costs           the cost of each sector.
+     * @param totReachable    the number of reachable sectors.
+     * @param forceMarchCosts the cost of reaching each sector by force march, or null.
+     */
+    public ReachabilityGrid(final int originX, final int originY,
+                            final int sizeX, final int sizeY,
+                            final int[] costs, final int totReachable,
+                            final int[] forceMarchCosts) {
+        this.originX = originX;
+        this.originY = originY;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.costs = costs;
+        this.totReachable = totReachable;
+        this.forceMarchCosts = forceMarchCosts;
+    }
+
+    public int getOriginX() {
+        return originX;
+    }
+
+    public int getOriginY() {
+        return originY;
+    }
+
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    public int getTotReachable() {
+        return totReachable;
+    }
+
+    /**
+     * Get the cost of each sector of the grid, indexed by (x - originX) * sizeY + (y - originY).
+     *
+     * @return the array of costs.
+     */
+    public int[] getCosts() {
+        return costs;
+    }
+
+    /**
+     * Get the MP cost of the cheapest path to the sector.
+     *
+     * @param posX the X coordinate of the sector.
+     * @param posY the Y coordinate of the sector.
+     * @return the cost of the path, or UNREACHABLE if the sector cannot be reached.
+     */
+    public int getCost(final int posX, final int posY) {
+        final int gridX = posX - originX;
+        final int gridY = posY - originY;
+        if (gridX < 0 || gridY < 0 || gridX >= sizeX || gridY >= sizeY) {
+            return UNREACHABLE;
+        }
+
+        return costs[gridX * sizeY + gridY];
+    }
+
+    /**
+     * Check if the sector can be reached.
+     *
+     * @param posX the X coordinate of the sector.
+     * @param posY the Y coordinate of the sector.
+     * @return true if the sector is reachable.
+     */
+    public boolean isReachable(final int posX, final int posY) {
+        return getCost(posX, posY) != UNREACHABLE;
+    }
+
+    /**
+     * Get the cost of reaching each sector by force march, indexed by (x - originX) * sizeY + (y - originY).
+     *
+     * @return the array of costs, or null if the force march layer was not computed.
+     */
+    public int[] getForceMarchCosts() {
+        return forceMarchCosts;
+    }
+
+    /**
+     * Get the MP cost of the cheapest path to the sector that goes only through sectors where the unit can force march.
+     *
+     * @param posX the X coordinate of the sector.
+     * @param posY the Y coordinate of the sector.
+     * @return the cost of the path, or UNREACHABLE if the sector cannot be reached by force march.
+     */
+    public int getForceMarchCost(final int posX, final int posY) {
+        final int gridX = posX - originX;
+        final int gridY = posY - originY;
+        if (forceMarchCosts == null || gridX < 0 || gridY < 0 || gridX >= sizeX || gridY >= sizeY) {
+            return UNREACHABLE;
+        }
+
+        return forceMarchCosts[gridX * sizeY + gridY];
+    }
+
+    /**
+     * Get the layer of the movement overlay where the sector belongs.
+     *
+     * @param posX the X coordinate of the sector.
+     * @param posY the Y coordinate of the sector.
+     * @return LAYER_NORMAL, LAYER_FORCE_MARCH or LAYER_NONE.
+     */
+    public int getLayer(final int posX, final int posY) {
+        if (isReachable(posX, posY)) {
+            return LAYER_NORMAL;
+
+        } else if (getForceMarchCost(posX, posY) != UNREACHABLE) {
+            return LAYER_FORCE_MARCH;
+        }
+
+        return LAYER_NONE;
+    }
+
+}
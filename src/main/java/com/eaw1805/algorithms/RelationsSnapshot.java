@@ -0,0 +1,125 @@
+package com.eaw1805.algorithms;
+
+import com.eaw1805.data.constants.RelationConstants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The relations between the nations, copied in a dense matrix indexed by the nation IDs.
+ * It also keeps, for each nation, if it has a relation worse than passage with any other nation,
+ * so that the admission of a sector does not need to examine all the nations of the game.
+ */
+public class RelationsSnapshot
+        implements RelationConstants {
+
+    /**
+     * The relation of each nation (first index) towards each other nation (second index), 0 if not known.
+     */
+    private final byte[][] relations;
+
+    /**
+     * Marks the nations that have a relation worse than passage with some other nation of the game.
+     */
+    private final boolean[] hostile;
+
+    /**
+     * The nations of the game.
+     */
+    private final List<Integer> nations;
+
+    /**
+     * Default constructor.
+     *
+     * @param relationsMap  the relations between the nations.
+     * @param nationsLoaded the nations of the game.
+     */
+    public RelationsSnapshot(final Map<Integer, Map<Integer, Integer>> relationsMap,
+                             final List<Integer> nationsLoaded) {
+        int maxId = 0;
+        for (final Map.Entry<Integer, Map<Integer, Integer>> entry : relationsMap.entrySet()) {
+            maxId = Math.max(maxId, entry.getKey());
+            for (final Integer target : entry.getValue().keySet()) {
+                maxId = Math.max(maxId, target);
+            }
+        }
+        for (final Integer nation : nationsLoaded) {
+            maxId = Math.max(maxId, nation);
+        }
+
+        nations = Collections.unmodifiableList(new ArrayList<Integer>(nationsLoaded));
+        relations = new byte[maxId + 1][maxId + 1];
+        hostile = new boolean[maxId + 1];
+        for (final Map.Entry<Integer, Map<Integer, Integer>> entry : relationsMap.entrySet()) {
+            if (entry.getKey() < 0) {
+                continue;
+            }
+
+            for (final Map.Entry<Integer, Integer> relation : entry.getValue().entrySet()) {
+                if (relation.getKey() >= 0 && relation.getValue() != null) {
+                    relations[entry.getKey()][relation.getKey()] = relation.getValue().byteValue();
+                }
+            }
+        }
+
+        for (int nation = 0; nation <= maxId; nation++) {
+            for (final Integer otherNation : nationsLoaded) {
+                if (otherNation != nation && otherNation >= 0 && relations[nation][otherNation] > REL_PASSAGE) {
+                    hostile[nation] = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the relation of a nation towards another nation.
+     *
+     * @param nationId the nation.
+     * @param targetId the other nation.
+     * @return the relation, or 0 if not known.
+     */
+    public int getRelation(final int nationId, final int targetId) {
+        if (nationId < 0 || targetId < 0 || nationId >= relations.length || targetId >= relations.length) {
+            return 0;
+        }
+
+        return relations[nationId][targetId];
+    }
+
+    public List<Integer> getNations() {
+        return nations;
+    }
+
+    /**
+     * Check if the other snapshot holds the same relations between the nations.
+     *
+     * @param other the other snapshot.
+     * @return true if the relation of each nation towards each other nation is the same in both snapshots.
+     */
+    public boolean hasSameRelations(final RelationsSnapshot other) {
+        final int maxId = Math.max(relations.length, other.relations.length);
+        for (int nation = 0; nation < maxId; nation++) {
+            for (int target = 0; target < maxId; target++) {
+                if (getRelation(nation, target) != other.getRelation(nation, target)) {
+                    return false;
+                }
+            }
+        }
+
+        return nations.containsAll(other.nations) && other.nations.containsAll(nations);
+    }
+
+    /**
+     * Check if the nation has a relation worse than passage with any other nation of the game.
+     *
+     * @param nationId the nation.
+     * @return true if the nation is hostile to some other nation.
+     */
+    public boolean isHostile(final int nationId) {
+        return nationId >= 0 && nationId < hostile.length && hostile[nationId];
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.eaw1805.algorithms;
+
+/**
+ * Limits the time that a search may take and allows another thread to cancel it.
+ * The searches check the budget as they progress; once it runs out they stop and keep the results found so far,
+ * and the budget reports that these results are truncated. The same budget may be shared by all the searches
+ * made for serving a request, or divided into parts that share its deadline and cancellation but report their
+ * truncation separately, e.g. one for each nation.
+ */
+public class SearchBudget {
+
+    /**
+     * The value of System.nanoTime() after which the searches stop.
+     */
+    private final long deadline;
+
+    /**
+     * If the searches must stop at the deadline.
+     */
+    private final boolean hasDeadline;
+
+    /**
+     * The budget that this one is part of, or null if it is not part of another budget.
+     */
+    private final SearchBudget parent;
+
+    /**
+     * Set when the searches are cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Set when a search stopped before completing.
+     */
+    private volatile boolean truncated;
+
+    /**
+     * Budget without a deadline that can only be cancelled.
+     */
+    public SearchBudget() {
+        deadline = 0;
+        hasDeadline = false;
+        parent = null;
+    }
+
+    /**
+     * Budget that runs out after the given time.
+     *
+     * @param timeoutMillis the time available in milliseconds, counting from now.
+     */
+    public SearchBudget(final long timeoutMillis) {
+        deadline = System.nanoTime() + timeoutMillis * 1000000L;
+        hasDeadline = true;
+        parent = null;
+    }
+
+    /**
+     * Budget that is part of another one. It runs out when the other budget does, but only the searches that use
+     * this part make it report truncated results. The other budget reports the truncation of all its parts.
+     *
+     * @param whole the budget that this one is part of.
+     */
+    public SearchBudget(final SearchBudget whole) {
+        deadline = whole.deadline;
+        hasDeadline = whole.hasDeadline;
+        parent = whole;
+    }
+
+    /**
+     * Stop all the searches that use this budget, e.g. because the client no longer waits for the results.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || (parent != null && parent.isCancelled());
+    }
+
+    /**
+     * Check if any search that used this budget stopped before completing.
+     *
+     * @return true if the results are partial.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Check if the budget has run out. A search that calls this method and gets true must stop,
+     * and the results are then marked as truncated.
+     *
+     * @return true if the search must stop.
+     */
+    public boolean isExhausted() {
+        if (isCancelled() || (hasDeadline && System.nanoTime() - deadline > 0)) {
+            for (SearchBudget part = this; part != null; part = part.parent) {
+                part.truncated = true;
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+}
@@ -1,28 +1,34 @@
 package com.eaw1805.algorithms;
 
+import com.eaw1805.data.dto.common.SectorDTO;
 
 public class SectorGraphLimits {
 
-    private transient int minX = 0;
+    private transient int minX;
 
-    private transient int minY = 0;
+    private transient int minY;
 
-    private transient int maxX = 85;
+    private transient int maxX;
 
-    private transient int maxY = 85;
+    private transient int maxY;
 
-    private transient int availPoints = 0;
+    private transient int availPoints;
 
     public SectorGraphLimits(final int posX, final int posY,
                              final int totX, final int totY,
                              final int movementPtsAvail, final int minPoints) {
         super();
         availPoints = movementPtsAvail;
-        int maxTiles = 0;
-        int mps = movementPtsAvail;
-        while (mps > 0) {
-            mps -= minPoints;
-            maxTiles++;
+        final int maxTiles;
+        if (movementPtsAvail <= 0) {
+            maxTiles = 0;
+
+        } else if (minPoints <= 0) {
+            // no lower bound on the cost of a sector, the whole map may be reached
+            maxTiles = Math.max(totX, totY);
+
+        } else {
+            maxTiles = (movementPtsAvail + minPoints - 1) / minPoints;
         }
         if (posX - maxTiles > 0) {
             minX = posX - maxTiles;
@@ -49,6 +55,74 @@ public class SectorGraphLimits {
         }
     }
 
+    /**
+     * Limits that take into account the terrain of the region. The window is first sized with the global minimum
+     * cost per sector, and then shrunk to the bounding box of the sectors whose cheapest path, over the terrain
+     * costs alone, is within the available points. Relations and storms can only make paths more expensive,
+     * so every sector that the unit may reach lies within these limits.
+     *
+     * @param regionSectors    the sectors of the region, indexed by their coordinates.
+     * @param posX             the X coordinate of the unit.
+     * @param posY             the Y coordinate of the unit.
+     * @param movementPtsAvail the available movement points.
+     * @param minPoints        the minimum cost of a sector.
+     * @param unitType         the type of the unit.
+     */
+    public SectorGraphLimits(final SectorDTO regionSectors[][],
+                             final int posX, final int posY,
+                             final int movementPtsAvail, final int minPoints,
+                             final int unitType) {
+        this(posX, posY, regionSectors.length, regionSectors[0].length, movementPtsAvail, minPoints);
+
+        final int unitClass = MovementGraph.getUnitClass(unitType);
+        final GridGraph graph = new GridGraph(maxX - minX + 1, maxY - minY + 1);
+        for (int thisX = minX; thisX <= maxX; thisX++) {
+            for (int thisY = minY; thisY <= maxY; thisY++) {
+                final int cost = MovementGraph.getMinimumCost(regionSectors[thisX][thisY], unitClass);
+                if (cost >= 0) {
+                    graph.addVertex(graph.index(thisX - minX, thisY - minY), cost);
+                }
+            }
+        }
+
+        // the unit already stands on its sector
+        final int baseIndex = graph.index(posX - minX, posY - minY);
+        if (baseIndex < 0) {
+            return;
+        }
+        if (!graph.containsVertex(baseIndex)) {
+            graph.addVertex(baseIndex, 0);
+        }
+
+        for (int index = 0; index < graph.size(); index++) {
+            if (graph.containsVertex(index)) {
+                graph.connectNeighbours(index);
+            }
+        }
+
+        // Keep the bounding box of the sectors within reach
+        final DialShortestPath dsp = new DialShortestPath(graph, baseIndex, movementPtsAvail, Integer.MAX_VALUE);
+        int boxMinX = posX;
+        int boxMinY = posY;
+        int boxMaxX = posX;
+        int boxMaxY = posY;
+        for (int index = 0; index < graph.size(); index++) {
+            if (dsp.getCost(index) != DialShortestPath.UNREACHABLE) {
+                final int thisX = graph.getX(index) + minX;
+                final int thisY = graph.getY(index) + minY;
+                boxMinX = Math.min(boxMinX, thisX);
+                boxMinY = Math.min(boxMinY, thisY);
+                boxMaxX = Math.max(boxMaxX, thisX);
+                boxMaxY = Math.max(boxMaxY, thisY);
+            }
+        }
+
+        minX = boxMinX;
+        minY = boxMinY;
+        maxX = boxMaxX;
+        maxY = boxMaxY;
+    }
+
     public int getMinX() {
         return minX;
     }
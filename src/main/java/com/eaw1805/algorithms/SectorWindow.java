@@ -0,0 +1,245 @@
+package com.eaw1805.algorithms;
+
+import com.eaw1805.data.dto.common.SectorDTO;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A rectangular window of the map that is examined by the movement algorithms.
+ * The window may either wrap an array cut out by the caller, or view a region grid (indexed by the coordinates of
+ * the sectors) by offset, without copying it. In both cases the cell (1, 1) of the window holds the sector at
+ * (minX, minY) and the window extends one cell beyond the limits in every direction; the cells that fall outside
+ * the map are empty.
+ * A window is never modified; a sector that changed is placed in a new window via
+ * {@link #withSector(int, int, SectorDTO)}, without writing into the array.
+ */
+public class SectorWindow {
+
+    /**
+     * The array that holds the sectors.
+     */
+    private final SectorDTO sectors[][];
+
+    /**
+     * The position in the array of the first column of the window.
+     */
+    private final int offsetX;
+
+    /**
+     * The position in the array of the first row of the window.
+     */
+    private final int offsetY;
+
+    /**
+     * The minimum X coordinate.
+     */
+    private final int minX;
+
+    /**
+     * The minimum Y coordinate.
+     */
+    private final int minY;
+
+    /**
+     * The horizontal size of the window.
+     */
+    private final int sizeX;
+
+    /**
+     * The vertical size of the window.
+     */
+    private final int sizeY;
+
+    /**
+     * If the window views a region grid, indexed by the coordinates of the sectors.
+     */
+    private final boolean regionView;
+
+    /**
+     * The sectors that replace those of the array, keyed by cellX * sizeY + cellY, or null if there are none.
+     */
+    private final Map<Integer, SectorDTO> overrides;
+
+    /**
+     * Wrap an array of sectors cut out by the caller, where the sector (minX, minY) is stored at position (1, 1).
+     *
+     * @param sectors the array of sectors.
+     * @param minX    the minimum X coordinate.
+     * @param minY    the minimum Y coordinate.
+     */
+    public SectorWindow(final SectorDTO sectors[][], final int minX, final int minY) {
+        this.sectors = sectors;
+        offsetX = 0;
+        offsetY = 0;
+        this.minX = minX;
+        this.minY = minY;
+        sizeX = sectors.length;
+        sizeY = sectors[0].length;
+        regionView = false;
+        overrides = null;
+    }
+
+    /**
+     * View the whole region grid, without copying it.
+     *
+     * @param regionSectors the sectors of the region, indexed by their coordinates.
+     */
+    public SectorWindow(final SectorDTO regionSectors[][]) {
+        sectors = regionSectors;
+        offsetX = -1;
+        offsetY = -1;
+        minX = 0;
+        minY = 0;
+        sizeX = regionSectors.length + 2;
+        sizeY = regionSectors[0].length + 2;
+        regionView = true;
+        overrides = null;
+    }
+
+    /**
+     * View the part of a region grid that lies within the limits, without copying it.
+     *
+     * @param regionSectors the sectors of the region, indexed by their coordinates.
+     * @param limits        the limits of the window.
+     */
+    public SectorWindow(final SectorDTO regionSectors[][], final SectorGraphLimits limits) {
+        sectors = regionSectors;
+        offsetX = limits.getMinX() - 1;
+        offsetY = limits.getMinY() - 1;
+        minX = limits.getMinX();
+        minY = limits.getMinY();
+        sizeX = limits.getMaxX() - limits.getMinX() + 3;
+        sizeY = limits.getMaxY() - limits.getMinY() + 3;
+        regionView = true;
+        overrides = null;
+    }
+
+    /**
+     * Copy a window, replacing some of its sectors.
+     *
+     * @param other     the window to copy.
+     * @param overrides the sectors that replace those of the array.
+     */
+    private SectorWindow(final SectorWindow other, final Map<Integer, SectorDTO> overrides) {
+        sectors = other.sectors;
+        offsetX = other.offsetX;
+        offsetY = other.offsetY;
+        minX = other.minX;
+        minY = other.minY;
+        sizeX = other.sizeX;
+        sizeY = other.sizeY;
+        regionView = other.regionView;
+        this.overrides = overrides;
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    /**
+     * Check if the window views a region grid, so that a window over the whole region may be used instead.
+     *
+     * @return true if the window views a region grid, false if it wraps an array cut out by the caller.
+     */
+    public boolean isRegionView() {
+        return regionView;
+    }
+
+    /**
+     * Get the array that holds the sectors, i.e. the region grid if the window views one.
+     *
+     * @return the array of sectors.
+     */
+    public SectorDTO[][] getGrid() {
+        return sectors;
+    }
+
+    /**
+     * Get the sector of a cell of the window.
+     *
+     * @param cellX the column of the cell.
+     * @param cellY the row of the cell.
+     * @return the sector, or null if the cell lies outside the map.
+     */
+    public SectorDTO getSector(final int cellX, final int cellY) {
+        if (overrides != null && cellX >= 0 && cellX < sizeX && cellY >= 0 && cellY < sizeY) {
+            final SectorDTO override = overrides.get(cellX * sizeY + cellY);
+            if (override != null) {
+                return override;
+            }
+        }
+
+        final int thisX = offsetX + cellX;
+        final int thisY = offsetY + cellY;
+        if (thisX < 0 || thisX >= sectors.length || thisY < 0 || thisY >= sectors[thisX].length) {
+            return null;
+        }
+
+        return sectors[thisX][thisY];
+    }
+
+    /**
+     * Create a window where the sector of a cell is replaced. Neither this window nor the array are modified.
+     *
+     * @param cellX  the column of the cell.
+     * @param cellY  the row of the cell.
+     * @param sector the new sector.
+     * @return the new window.
+     */
+    public SectorWindow withSector(final int cellX, final int cellY, final SectorDTO sector) {
+        final Map<Integer, SectorDTO> newOverrides = (overrides == null)
+                ? new HashMap<Integer, SectorDTO>()
+                : new HashMap<Integer, SectorDTO>(overrides);
+        newOverrides.put(cellX * sizeY + cellY, sector);
+        return new SectorWindow(this, newOverrides);
+    }
+
+    /**
+     * Get the sector at the given coordinates.
+     *
+     * @param posX the X coordinate of the sector.
+     * @param posY the Y coordinate of the sector.
+     * @return the sector, or null if it lies outside the window or the map.
+     */
+    public SectorDTO getSectorAt(final int posX, final int posY) {
+        final int cellX = posX - minX + 1;
+        final int cellY = posY - minY + 1;
+        if (cellX < 0 || cellX >= sizeX || cellY < 0 || cellY >= sizeY) {
+            return null;
+        }
+
+        return getSector(cellX, cellY);
+    }
+
+    /**
+     * Identify the region of the window out of its first sector.
+     *
+     * @return the region, or -1 if the window is empty.
+     */
+    public int getRegionId() {
+        for (int cellX = 0; cellX < sizeX; cellX++) {
+            for (int cellY = 0; cellY < sizeY; cellY++) {
+                final SectorDTO sector = getSector(cellX, cellY);
+                if (sector != null) {
+                    return sector.getRegionId();
+                }
+            }
+        }
+
+        return -1;
+    }
+
+}
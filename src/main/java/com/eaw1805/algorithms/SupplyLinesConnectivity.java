@@ -25,12 +25,15 @@ import com.eaw1805.data.model.orders.PatrolOrderDetails;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.jgrapht.alg.BellmanFordShortestPath;
-import org.jgrapht.graph.SimpleDirectedGraph;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -47,19 +50,24 @@ public class SupplyLinesConnectivity
     private static final Logger LOGGER = LogManager.getLogger(SupplyLinesConnectivity.class);
 
     /**
-     * Stores the graph for computing the connectivity.
+     * The range of the supplied barracks in MPs.
      */
-    private final transient SimpleDirectedGraph<Sector, SimpleEdge> sectorsGraph;
+    private static final int SUPPLY_RANGE = 40;
 
     /**
-     * Stores the graph for computing the movement cost.
+     * Stores the graph of each region for computing the connectivity.
      */
-    private final transient SimpleDirectedGraph<Sector, SimpleWeightedEdge> movementGraph;
+    private final transient GridGraph[] sectorsGraph;
 
     /**
      * Stores the sectors for easy access.
      */
-    private final transient Sector[][][] sectorsArray;
+    private final transient SupplySector[][][] sectorsArray;
+
+    /**
+     * The sectors of the graphs, in the order they were added.
+     */
+    private final transient List<SupplySector> vertexOrder;
 
     /**
      * The current instance of the game engine.
@@ -77,24 +85,69 @@ public class SupplyLinesConnectivity
     private final transient Nation thisOwner;
 
     /**
-     * An instance of the distance calculator for each region.
+     * The identity of the owner.
+     */
+    private final int ownerId;
+
+    /**
+     * The code of the owner, in lower case.
+     */
+    private final char ownerCode;
+
+    /**
+     * The regions of the game.
+     */
+    private final transient List<Region> regions;
+
+    /**
+     * The identities of the regions of the game.
+     */
+    private final int[] regionIds;
+
+    /**
+     * An instance of the distance calculator for each region, indexed by the identity of the region.
+     */
+    private final transient DistanceCalculator[] distCalc;
+
+    /**
+     * Store all barracks that are in supply, keyed by the identity of the region.
      */
-    private final transient Map<Region, DistanceCalculator> distCalc;
+    private final transient Map<Integer, List<SupplySector>> barracksInSupply;
 
     /**
-     * Store all barracks that are in supply.
+     * Store all barracks that are not in supply, keyed by the identity of the region.
      */
-    private final transient Map<Region, List<Sector>> barracksInSupply;
+    private final transient Map<Integer, List<SupplySector>> barracksNotInSupply;
 
     /**
-     * Store all barracks that are not in supply.
+     * Store the positions of all barracks that are in supply, regardless of region, for fast lookups.
      */
-    private final transient Map<Region, List<Sector>> barracksNotInSupply;
+    private final transient Set<Long> suppliedSectors;
 
     /**
-     * Stores all supplied barracks and the sector that they can support.
+     * Stores the trade cities and home barracks that act as sources of supply.
      */
-    private final transient Map<Sector, BellmanFordShortestPath<Sector, SimpleEdge>> supplySources;
+    private final transient Set<SupplySector> supplySources;
+
+    /**
+     * The sectors of Europe that can be reached from any source of supply.
+     */
+    private transient BitSet supplyNetwork;
+
+    /**
+     * The sectors of the trade cities of Europe.
+     */
+    private final transient List<SupplySector> tradeCities;
+
+    /**
+     * The sectors of the barracks of the owner, each one with its barrack attached.
+     */
+    private final transient List<SupplySector> ownBarracks;
+
+    /**
+     * The sectors of the barracks of the owner, keyed by their position.
+     */
+    private final transient Map<Long, SupplySector> ownBarracksByPosition;
 
     /**
      * The sectors under patrol indexed to patrol order.
@@ -117,6 +170,21 @@ public class SupplyLinesConnectivity
 
     private final transient TradeCityManagerBean tradeCityManagerBean;
 
+    /**
+     * The data of the turn shared with the other nations, or null to read them from the database.
+     */
+    private final transient SupplySnapshot snapshot;
+
+    /**
+     * The budget of the searches made by resolveSupply, or null if they are not limited.
+     */
+    private transient SearchBudget budget;
+
+    /**
+     * The supply flags of the barracks computed by resolveSupply, before they are set on the barracks.
+     */
+    private transient Map<SupplySector, Boolean> barrackFlags;
+
     /**
      * Default constructor.
      *
@@ -134,7 +202,32 @@ public class SupplyLinesConnectivity
                                    final RegionManagerBean regionManager,
                                    final BarrackManagerBean barrackManager,
                                    final TradeCityManagerBean tradeCityManager) {
+        this(gEngine, owner, dcalc, activePatrols, null,
+                relationsManager, sectorManager, regionManager, barrackManager, tradeCityManager);
+    }
 
+    /**
+     * Constructor that reads the data of the turn from a snapshot shared with the other nations.
+     * The patrols, the graph and the values of the sectors are examined by the calling thread; afterwards the
+     * supply lines may be computed in parallel with those of other nations via {@link #resolveSupply(SearchBudget)}.
+     *
+     * @param gEngine       the instance of the Game Engine.
+     * @param owner         the Nation to investigate.
+     * @param dcalc         the distance calculators for each region.
+     * @param activePatrols the active patrol orders.
+     * @param turnSnapshot  the data of the turn, or null to read them from the database.
+     */
+    public SupplyLinesConnectivity(final Engine gEngine,
+                                   final Nation owner,
+                                   final Map<Region, DistanceCalculator> dcalc,
+                                   final Map<Integer, PatrolOrderDetails> activePatrols,
+                                   final SupplySnapshot turnSnapshot,
+                                   final RelationsManagerBean relationsManager,
+                                   final SectorManagerBean sectorManager,
+                                   final RegionManagerBean regionManager,
+                                   final BarrackManagerBean barrackManager,
+                                   final TradeCityManagerBean tradeCityManager) {
+        snapshot = turnSnapshot;
         relationsManagerBean = relationsManager;
         sectorManagerBean = sectorManager;
         regionManagerBean = regionManager;
@@ -162,22 +255,34 @@ public class SupplyLinesConnectivity
         }
 
         gameEngine = gEngine;
-        sectorsGraph = new SimpleDirectedGraph<Sector, SimpleEdge>(SimpleEdge.class);
-        movementGraph = new SimpleDirectedGraph<Sector, SimpleWeightedEdge>(SimpleWeightedEdge.class);
-        sectorsArray = new Sector[RegionConstants.REGION_LAST + 1][regionSizeX][regionSizeY];
-        supplySources = new HashMap<Sector, BellmanFordShortestPath<Sector, SimpleEdge>>();
-        barracksNotInSupply = new HashMap<Region, List<Sector>>();
-        barracksInSupply = new HashMap<Region, List<Sector>>();
+        sectorsGraph = new GridGraph[RegionConstants.REGION_LAST + 1];
+        for (int region = 0; region <= RegionConstants.REGION_LAST; region++) {
+            sectorsGraph[region] = new GridGraph(regionSizeX, regionSizeY);
+        }
+        sectorsArray = new SupplySector[RegionConstants.REGION_LAST + 1][regionSizeX][regionSizeY];
+        vertexOrder = new ArrayList<SupplySector>();
+        supplySources = new HashSet<SupplySector>();
+        barracksNotInSupply = new HashMap<Integer, List<SupplySector>>();
+        barracksInSupply = new HashMap<Integer, List<SupplySector>>();
+        suppliedSectors = new HashSet<Long>();
         patrolledSectorsIdxOrder = new HashMap<Position, Set<PatrolOrderDetails>>();
-        distCalc = dcalc;
         thisGame = gameEngine.getGame();
         thisOwner = owner;
+        ownerId = owner.getId();
+        ownerCode = String.valueOf(owner.getCode()).toLowerCase().charAt(0);
+
+        distCalc = new DistanceCalculator[RegionConstants.REGION_LAST + 1];
+        for (final Map.Entry<Region, DistanceCalculator> entry : dcalc.entrySet()) {
+            distCalc[entry.getKey().getId()] = entry.getValue();
+        }
 
         // Initialize Maps & Lists
-        final List<Region> lstRegion = regionManagerBean.list();
-        for (final Region region : lstRegion) {
-            barracksInSupply.put(region, new ArrayList<Sector>());
-            barracksNotInSupply.put(region, new ArrayList<Sector>());
+        regions = listRegions();
+        regionIds = new int[regions.size()];
+        for (int pos = 0; pos < regionIds.length; pos++) {
+            regionIds[pos] = regions.get(pos).getId();
+            barracksInSupply.put(regionIds[pos], new ArrayList<SupplySector>());
+            barracksNotInSupply.put(regionIds[pos], new ArrayList<SupplySector>());
         }
 
         // Process active patrol orders
@@ -193,10 +298,10 @@ public class SupplyLinesConnectivity
             }
 
             // Retrieve relations with foreign nation
-            final NationsRelation relation = relationsManagerBean.getByNations(thisGame, orderDetails.getNation(), owner);
+            final int relation = getRelation(orderDetails.getNation(), owner);
 
             // Check relations
-            if (relation.getRelation() >= REL_COLONIAL_WAR) {
+            if (relation != SupplySnapshot.NO_RELATION && relation >= REL_COLONIAL_WAR) {
                 // Index patrol order by sectors affected
                 for (final Sector sector : orderDetails.getPath()) {
                     addPatrolSector(sector, orderDetails);
@@ -206,6 +311,14 @@ public class SupplyLinesConnectivity
 
         // Construct the graph from the sectors.
         createGraphFromSectors();
+
+        // Retrieve the sources of supply and the barracks, so that they are examined without accessing the entities
+        tradeCities = listTradeCities();
+        ownBarracks = listBarracks();
+        ownBarracksByPosition = new HashMap<Long, SupplySector>();
+        for (final SupplySector barrack : ownBarracks) {
+            ownBarracksByPosition.put(barrack.getKey(), barrack);
+        }
     }
 
     /**
@@ -230,41 +343,43 @@ public class SupplyLinesConnectivity
      */
     private void createGraphFromSectors() {
         // First pass, add all owned sectors
-        final List<Sector> lstSectorsOwned = sectorManagerBean.listByGameNation(thisGame, thisOwner);
-        for (final Sector sector : lstSectorsOwned) {
-            sectorsGraph.addVertex(sector);
-            movementGraph.addVertex(sector);
-            sectorsArray[sector.getPosition().getRegion().getId()][sector.getPosition().getX() + 1][sector.getPosition().getY() + 1] = sector;
+        final List<SupplySector> lstSectorsOwned = listSectors(thisOwner);
+        for (final SupplySector sector : lstSectorsOwned) {
+            addVertex(sector);
         }
 
         // Second pass, add all sectors owned by allied or friendly nations
         final List<Nation> lstNations = gameEngine.getAliveNations();
         for (final Nation nation : lstNations) {
             // Examine foreign relations
-            final NationsRelation relation = relationsManagerBean.getByNations(thisGame, nation, thisOwner);
-            if (relation != null && relation.getRelation() <= REL_PASSAGE) {
-                final List<Sector> lstSectors = sectorManagerBean.listByGameNation(thisGame, nation);
-                for (final Sector sector : lstSectors) {
-                    sectorsGraph.addVertex(sector);
-                    movementGraph.addVertex(sector);
-                    sectorsArray[sector.getPosition().getRegion().getId()][sector.getPosition().getX() + 1][sector.getPosition().getY() + 1] = sector;
+            final int relation = getRelation(nation, thisOwner);
+            if (relation != SupplySnapshot.NO_RELATION && relation <= REL_PASSAGE) {
+                final List<SupplySector> lstSectors = listSectors(nation);
+                for (final SupplySector sector : lstSectors) {
+                    addVertex(sector);
                 }
             }
         }
 
         // Retrieve sea sectors for EUROPE only
-        final Region europe = regionManagerBean.getByID(EUROPE);
-        final List<Sector> lstSea = sectorManagerBean.listSeaByGameRegion(thisGame, europe, false);
-        for (final Sector sector : lstSea) {
+        final List<SupplySector> lstSea;
+        if (snapshot == null) {
+            final Region europe = regionManagerBean.getByID(EUROPE);
+            lstSea = toSupplySectors(sectorManagerBean.listSeaByGameRegion(thisGame, europe, false));
+
+        } else {
+            lstSea = snapshot.getSeaSectors();
+        }
+        for (final SupplySector sector : lstSea) {
             boolean blockedByPatrol = false;
             // - Giblartar 8/46
             // - Copenhagen 36/14, 37/14
             // - Vosporos 55/42, 58/39
-            if ((sector.getPosition().getX() == 7 && sector.getPosition().getY() == 45)
-                    || (sector.getPosition().getX() == 35 && sector.getPosition().getY() == 13)
-                    || (sector.getPosition().getX() == 36 && sector.getPosition().getY() == 13)
-                    || (sector.getPosition().getX() == 54 && sector.getPosition().getY() == 41)
-                    || (sector.getPosition().getX() == 57 && sector.getPosition().getY() == 38)) {
+            if ((sector.getPosX() == 7 && sector.getPosY() == 45)
+                    || (sector.getPosX() == 35 && sector.getPosY() == 13)
+                    || (sector.getPosX() == 36 && sector.getPosY() == 13)
+                    || (sector.getPosX() == 54 && sector.getPosY() == 41)
+                    || (sector.getPosX() == 57 && sector.getPosY() == 38)) {
 
                 // check that sea sector is not patrolled by enemy forces
                 final Position thisPos = sector.getPosition();
@@ -276,18 +391,44 @@ public class SupplyLinesConnectivity
             }
 
             if (!blockedByPatrol) {
-                sectorsGraph.addVertex(sector);
-                movementGraph.addVertex(sector);
-                sectorsArray[sector.getPosition().getRegion().getId()][sector.getPosition().getX() + 1][sector.getPosition().getY() + 1] = sector;
+                addVertex(sector);
             }
         }
 
         // Third pass, Add the edges of the graph
-        for (Sector sector : sectorsGraph.vertexSet()) {
+        // in the order the sectors were added, so that the patrols roll in the same order as always
+        for (final SupplySector sector : vertexOrder) {
             createSector(sector);
         }
     }
 
+    /**
+     * Add a sector to the graph of its region.
+     *
+     * @param sector the sector to add.
+     */
+    private void addVertex(final SupplySector sector) {
+        final int region = sector.getRegionId();
+        final int posX = sector.getPosX() + 1;
+        final int posY = sector.getPosY() + 1;
+        final int index = sectorsGraph[region].index(posX, posY);
+        if (!sectorsGraph[region].containsVertex(index)) {
+            sectorsGraph[region].addVertex(index, 1);
+            vertexOrder.add(sector);
+        }
+        sectorsArray[region][posX][posY] = sector;
+    }
+
+    /**
+     * Get the index of the sector in the graph of its region.
+     *
+     * @param sector the sector to examine.
+     * @return the index of the sector.
+     */
+    private int getIndex(final SupplySector sector) {
+        return sectorsGraph[sector.getRegionId()].index(sector.getPosX() + 1, sector.getPosY() + 1);
+    }
+
     /**
      * Determine the roll target and through the roll to check if the patrol will intercept the supply lines.
      *
@@ -318,35 +459,31 @@ public class SupplyLinesConnectivity
      *
      * @param sector the sector to examine.
      */
-    private void createSector(final Sector sector) {
-        final int posX = sector.getPosition().getX() + 1;
-        final int posY = sector.getPosition().getY() + 1;
-        addEdge(sector.getPosition().getRegion().getId(), posX, posY, posX - 1, posY - 1);
-        addEdge(sector.getPosition().getRegion().getId(), posX, posY, posX - 1, posY);
-        addEdge(sector.getPosition().getRegion().getId(), posX, posY, posX - 1, posY + 1);
-        addEdge(sector.getPosition().getRegion().getId(), posX, posY, posX, posY - 1);
-        addEdge(sector.getPosition().getRegion().getId(), posX, posY, posX, posY + 1);
-        addEdge(sector.getPosition().getRegion().getId(), posX, posY, posX + 1, posY - 1);
-        addEdge(sector.getPosition().getRegion().getId(), posX, posY, posX + 1, posY);
-        addEdge(sector.getPosition().getRegion().getId(), posX, posY, posX + 1, posY + 1);
+    private void createSector(final SupplySector sector) {
+        final int posX = sector.getPosX() + 1;
+        final int posY = sector.getPosY() + 1;
+        for (int direction = 0; direction < GridGraph.DIRECTIONS; direction++) {
+            addEdge(sector.getRegionId(), posX, posY, direction);
+        }
     }
 
     /**
-     * Add an edge to the directed weighted graph.
+     * Add an edge to the directed graph.
      *
-     * @param region the region of examination.
-     * @param posX   the X coordinate of the vertex.
-     * @param posY   the Y coordinate of the vertex.
-     * @param thatX  the X coordinate of the neighboring vertex.
-     * @param thatY  the Y coordinate of the neighboring vertex.
+     * @param region    the region of examination.
+     * @param posX      the X coordinate of the vertex.
+     * @param posY      the Y coordinate of the vertex.
+     * @param direction the direction of the neighboring vertex.
      */
-    private void addEdge(final int region, final int posX, final int posY, final int thatX, final int thatY) {
+    private void addEdge(final int region, final int posX, final int posY, final int direction) {
+        final int thatX = posX + GridGraph.deltaX(direction);
+        final int thatY = posY + GridGraph.deltaY(direction);
         boolean addEdge = false;
 
-        if (sectorsArray[region][thatX][thatY] != null && sectorsGraph.containsVertex(sectorsArray[region][thatX][thatY])) {
+        if (sectorsGraph[region].containsVertex(sectorsGraph[region].index(thatX, thatY))) {
             // Add an edge between sectors if any of the rules below is true:
             // 1. Source is an Ocean sector and target has a shipyard
-            if (sectorsArray[region][posX][posY].getTerrain().getId() == TERRAIN_O && sectorsArray[region][thatX][thatY].hasBarrack()) {
+            if (sectorsArray[region][posX][posY].getTerrainId() == TERRAIN_O && sectorsArray[region][thatX][thatY].hasBarrack()) {
 
                 // check that sea sector is not patrolled by enemy forces
                 boolean blockedByPatrol = false;
@@ -358,7 +495,7 @@ public class SupplyLinesConnectivity
 
                 addEdge = !blockedByPatrol;
 
-            } else if (sectorsArray[region][thatX][thatY].getTerrain().getId() == TERRAIN_O && sectorsArray[region][posX][posY].hasBarrack()) {
+            } else if (sectorsArray[region][thatX][thatY].getTerrainId() == TERRAIN_O && sectorsArray[region][posX][posY].hasBarrack()) {
                 // 2. Target is an Ocean sector and source has a shipyard
 
                 // check that sea sector is not patrolled by enemy forces
@@ -371,8 +508,8 @@ public class SupplyLinesConnectivity
 
                 addEdge = !blockedByPatrol;
 
-            } else if ((sectorsArray[region][posX][posY].getTerrain().getId() == TERRAIN_O && sectorsArray[region][thatX][thatY].getTerrain().getId() == TERRAIN_O)
-                    || (sectorsArray[region][posX][posY].getTerrain().getId() != TERRAIN_O && sectorsArray[region][posX][posY].getTerrain().getId() != TERRAIN_I && sectorsArray[region][thatX][thatY].getTerrain().getId() != TERRAIN_O && sectorsArray[region][thatX][thatY].getTerrain().getId() != TERRAIN_I)) {
+            } else if ((sectorsArray[region][posX][posY].getTerrainId() == TERRAIN_O && sectorsArray[region][thatX][thatY].getTerrainId() == TERRAIN_O)
+                    || (sectorsArray[region][posX][posY].getTerrainId() != TERRAIN_O && sectorsArray[region][posX][posY].getTerrainId() != TERRAIN_I && sectorsArray[region][thatX][thatY].getTerrainId() != TERRAIN_O && sectorsArray[region][thatX][thatY].getTerrainId() != TERRAIN_I)) {
                 // 3. Both sectors are sea sectors
                 // 4. Both sectors are land sectors (excluding impassable)
                 addEdge = true;
@@ -380,12 +517,93 @@ public class SupplyLinesConnectivity
         }
 
         if (addEdge) {
-            final SimpleEdge thisEdge = new SimpleEdge();
-            sectorsGraph.addEdge(sectorsArray[region][posX][posY], sectorsArray[region][thatX][thatY], thisEdge);
+            sectorsGraph[region].addEdge(sectorsGraph[region].index(posX, posY), direction);
         }
     }
 
     public void setupSupplyLines() {
+        setupSupplyLines(null);
+    }
+
+    /**
+     * Identify the supplied barracks, stopping when the budget runs out.
+     * In that case the barracks keep their supply state, nothing is reported to the players
+     * and the budget reports that the result is truncated.
+     *
+     * @param searchBudget the budget of the searches, or null if they are not limited.
+     */
+    public void setupSupplyLines(final SearchBudget searchBudget) {
+        commitSupply(resolveSupply(searchBudget));
+    }
+
+    /**
+     * Identify the supplied barracks without modifying them, so that the supply lines of many nations can be
+     * computed in parallel. Only the values read by the constructor are examined, and the result must be
+     * applied afterwards via {@link #commitSupply(SupplyResult)} by the thread that owns the entities.
+     * The searches use their own part of the budget, so that the result is truncated only if they stopped early.
+     *
+     * @param searchBudget the budget of the searches, or null if they are not limited.
+     * @return the supply state of the barracks of the nation.
+     */
+    public SupplyResult resolveSupply(final SearchBudget searchBudget) {
+        barrackFlags = new LinkedHashMap<SupplySector, Boolean>();
+        computeSupply((searchBudget == null) ? null : new SearchBudget(searchBudget));
+
+        final List<Position> supplied = new ArrayList<Position>();
+        final List<Position> notSupplied = new ArrayList<Position>();
+        for (final Map.Entry<SupplySector, Boolean> entry : barrackFlags.entrySet()) {
+            if (entry.getValue()) {
+                notSupplied.add(entry.getKey().getPosition());
+
+            } else {
+                supplied.add(entry.getKey().getPosition());
+            }
+        }
+        barrackFlags = null;
+
+        return new SupplyResult(ownerId, budget != null && budget.isTruncated(), supplied, notSupplied);
+    }
+
+    /**
+     * Apply the supply state computed by {@link #resolveSupply(SearchBudget)} to the barracks and report the
+     * barracks that are not supplied. A truncated result is not applied, since the barracks not yet examined
+     * would be marked as not supplied; the barracks then keep their supply state.
+     *
+     * @param result the supply state of the barracks of the nation.
+     */
+    public void commitSupply(final SupplyResult result) {
+        if (result.isTruncated()) {
+            LOGGER.warn("Supply lines for " + thisOwner.getName() + " were not fully computed within the time available");
+            return;
+        }
+
+        for (final Position position : result.getSuppliedBarracks()) {
+            final Barrack barrack = getBarrack(position);
+            if (barrack != null) {
+                barrack.setNotSupplied(false);
+            }
+        }
+
+        for (final Position position : result.getNotSuppliedBarracks()) {
+            final Barrack barrack = getBarrack(position);
+            if (barrack != null) {
+                barrack.setNotSupplied(true);
+            }
+        }
+
+        // Report not supplied barracks
+        if (gameEngine.getName().equals("GameEngine")) {
+            reportNotSupplied();
+        }
+    }
+
+    /**
+     * Identify the supplied barracks, stopping when the budget runs out.
+     *
+     * @param searchBudget the budget of the searches, or null if they are not limited.
+     */
+    private void computeSupply(final SearchBudget searchBudget) {
+        budget = searchBudget;
 
         // Examine all European trade cities owned by player
         supplyTradeCities();
@@ -396,13 +614,191 @@ public class SupplyLinesConnectivity
         // Examine all barracks with an uninterrupted path to an already supplied barrack
         supplyBarracks();
 
+        // Measure the distance of each sector from the supplied barracks
+        setupSupplyDistances();
+
         // Examine all not supplied barracks continuously until no further change is made
         reexamineNotSupplied();
 
-        // Report not supplied barracks
-        if (gameEngine.getName().equals("GameEngine")) {
-            reportNotSupplied();
+        if (budget != null && budget.isTruncated()) {
+            // the distances are partial, checkSupply will search for paths instead
+            for (final DistanceCalculator regionCalc : distCalc) {
+                if (regionCalc != null) {
+                    regionCalc.clearSupplyDistances();
+                }
+            }
+        }
+    }
+
+    /**
+     * Record the supply flag of the barrack, to be set when the result is applied.
+     *
+     * @param barrack     the sector of the barrack.
+     * @param notSupplied true if the barrack is not supplied.
+     */
+    private void setNotSupplied(final SupplySector barrack, final boolean notSupplied) {
+        barrackFlags.put(barrack, notSupplied);
+    }
+
+    /**
+     * Get the supply flag of the barrack, including any flag recorded but not yet set.
+     *
+     * @param barrack the sector of the barrack.
+     * @return true if the barrack is not supplied.
+     */
+    private boolean isNotSupplied(final SupplySector barrack) {
+        if (barrackFlags.containsKey(barrack)) {
+            return barrackFlags.get(barrack);
+        }
+
+        return barrack.getNotSupplied();
+    }
+
+    /**
+     * Retrieve the regions of the game.
+     *
+     * @return the regions.
+     */
+    private List<Region> listRegions() {
+        return (snapshot == null) ? regionManagerBean.list() : snapshot.getRegions();
+    }
+
+    /**
+     * Retrieve the sectors owned by the nation.
+     *
+     * @param nation the nation.
+     * @return the sectors of the nation.
+     */
+    private List<SupplySector> listSectors(final Nation nation) {
+        return (snapshot == null) ? toSupplySectors(sectorManagerBean.listByGameNation(thisGame, nation)) : snapshot.getSectors(nation);
+    }
+
+    /**
+     * Retrieve the sectors of the trade cities of Europe that are part of the graph.
+     *
+     * @return the sectors of the trade cities.
+     */
+    private List<SupplySector> listTradeCities() {
+        if (snapshot != null) {
+            return snapshot.getTradeCitySectors();
         }
+
+        final List<SupplySector> lstTradeCities = new ArrayList<SupplySector>();
+        for (final TradeCity tradeCity : tradeCityManagerBean.listByGame(thisGame)) {
+            if (tradeCity.getPosition().getRegion().getId() == EUROPE) {
+                final SupplySector sector = sectorsArray[EUROPE][tradeCity.getPosition().getX() + 1][tradeCity.getPosition().getY() + 1];
+                if (sector != null) {
+                    lstTradeCities.add(sector);
+                }
+            }
+        }
+        return lstTradeCities;
+    }
+
+    /**
+     * Retrieve the sectors of the barracks owned by the owner, each one with its barrack attached.
+     *
+     * @return the barracks of the owner.
+     */
+    private List<SupplySector> listBarracks() {
+        if (snapshot != null) {
+            return snapshot.getBarracks(thisOwner);
+        }
+
+        final List<SupplySector> lstBarracks = new ArrayList<SupplySector>();
+        for (final Barrack barrack : barrackManagerBean.listByGameNation(thisGame, thisOwner)) {
+            final SupplySector sector = sectorsArray[barrack.getPosition().getRegion().getId()][barrack.getPosition().getX() + 1][barrack.getPosition().getY() + 1];
+            lstBarracks.add(new SupplySector((sector == null) ? sectorManagerBean.getByPosition(barrack.getPosition()) : sector.getSector(), barrack));
+        }
+        return lstBarracks;
+    }
+
+    /**
+     * Read the values of the sectors.
+     *
+     * @param lstSectors the sectors.
+     * @return the values of the sectors.
+     */
+    private static List<SupplySector> toSupplySectors(final List<Sector> lstSectors) {
+        final List<SupplySector> lstSupply = new ArrayList<SupplySector>(lstSectors.size());
+        for (final Sector sector : lstSectors) {
+            lstSupply.add(new SupplySector(sector, null));
+        }
+        return lstSupply;
+    }
+
+    /**
+     * Retrieve the sectors of the values provided.
+     *
+     * @param lstSupply the values of the sectors.
+     * @return the sectors that are known.
+     */
+    private static List<Sector> toSectors(final List<SupplySector> lstSupply) {
+        final List<Sector> lstSectors = new ArrayList<Sector>(lstSupply.size());
+        for (final SupplySector sector : lstSupply) {
+            if (sector != null && sector.getSector() != null) {
+                lstSectors.add(sector.getSector());
+            }
+        }
+        return lstSectors;
+    }
+
+    /**
+     * Get the indices of the sectors in the movement graph of the distance calculator.
+     *
+     * @param lstSupply  the values of the sectors.
+     * @param regionCalc the distance calculator of the region of the sectors.
+     * @return the indices of the sectors.
+     */
+    private static int[] getIndices(final List<SupplySector> lstSupply, final DistanceCalculator regionCalc) {
+        final int[] indices = new int[lstSupply.size()];
+        int totIndices = 0;
+        for (final SupplySector sector : lstSupply) {
+            if (sector != null) {
+                indices[totIndices++] = regionCalc.getIndex(sector.getPosX(), sector.getPosY());
+            }
+        }
+        return Arrays.copyOf(indices, totIndices);
+    }
+
+    /**
+     * Retrieve the relation of a nation towards another.
+     *
+     * @param nation the nation that holds the relation.
+     * @param target the nation that the relation refers to.
+     * @return the relation, or NO_RELATION if it is not known.
+     */
+    private int getRelation(final Nation nation, final Nation target) {
+        if (snapshot != null) {
+            return snapshot.getRelation(nation, target);
+        }
+
+        final NationsRelation relation = relationsManagerBean.getByNations(thisGame, nation, target);
+        return (relation == null) ? SupplySnapshot.NO_RELATION : relation.getRelation();
+    }
+
+    /**
+     * Retrieve the barrack at the given position.
+     *
+     * @param position the position of the barrack.
+     * @return the barrack.
+     */
+    private Barrack getBarrack(final Position position) {
+        final SupplySector sector = ownBarracksByPosition.get(SupplySector.getKey(position));
+        if (sector != null) {
+            return sector.getBarrack();
+        }
+
+        return (snapshot == null) ? barrackManagerBean.getByPosition(position) : null;
+    }
+
+    /**
+     * Check if the budget of the searches has run out.
+     *
+     * @return true if the searches must stop.
+     */
+    private boolean isExhausted() {
+        return budget != null && budget.isExhausted();
     }
 
     /**
@@ -412,20 +808,51 @@ public class SupplyLinesConnectivity
      * @return true, if it is within supply lines.
      */
     public boolean checkSupply(final Sector thisSector) {
-        boolean inSupply = false;
+        boolean inSupply = suppliedSectors.contains(SupplySector.getKey(thisSector.getPosition()));
 
-        final List<Sector> supplied = barracksInSupply.get(thisSector.getPosition().getRegion());
-        if (!supplied.isEmpty()) {
-            if (supplied.contains(thisSector)) {
+        // Now check again to find a path of 40MP cost
+        if (!inSupply) {
+            final int regionId = thisSector.getPosition().getRegion().getId();
+            final DistanceCalculator regionCalc = distCalc[regionId];
+            if (regionCalc.hasSupplyDistances()
+                    ? regionCalc.isInSupply(thisSector)
+                    : regionCalc.pathExists(thisSector, toSectors(barracksInSupply.get(regionId)), SUPPLY_RANGE)) {
                 inSupply = true;
             }
         }
 
-        // Now check again to find a path of 40MP cost
-        if (!inSupply) {
-            final DistanceCalculator regionCalc = distCalc.get(thisSector.getPosition().getRegion());
-            if (regionCalc.pathExists(thisSector, supplied, 40)) {
-                inSupply = true;
+        return inSupply;
+    }
+
+    /**
+     * Check if each one of the sectors is within range of the supply lines.
+     * The distances from the supplied barracks are computed at most once per region,
+     * so that checking all the armies and production sites of a nation costs a single search per region.
+     *
+     * @param sectors the sectors to check.
+     * @return the positions in the list of the sectors that are within supply lines.
+     */
+    public BitSet checkSupply(final List<Sector> sectors) {
+        final BitSet inSupply = new BitSet(sectors.size());
+        for (int pos = 0; pos < sectors.size(); pos++) {
+            final Sector thisSector = sectors.get(pos);
+            if (suppliedSectors.contains(SupplySector.getKey(thisSector.getPosition()))) {
+                inSupply.set(pos);
+                continue;
+            }
+
+            final int regionId = thisSector.getPosition().getRegion().getId();
+            final DistanceCalculator regionCalc = distCalc[regionId];
+            if (regionCalc == null) {
+                continue;
+            }
+
+            if (!regionCalc.hasSupplyDistances()) {
+                regionCalc.setupSupplyDistances(getIndices(barracksInSupply.get(regionId), regionCalc), SUPPLY_RANGE, null);
+            }
+
+            if (regionCalc.isInSupply(thisSector)) {
+                inSupply.set(pos);
             }
         }
 
@@ -438,172 +865,249 @@ public class SupplyLinesConnectivity
      * @return supplied barracks that act as supply sources.
      */
     public Map<Region, List<Sector>> getBarracksInSupply() {
-        return barracksInSupply;
+        final Map<Region, List<Sector>> lstSupplied = new HashMap<Region, List<Sector>>();
+        for (final Region region : regions) {
+            lstSupplied.put(region, toSectors(barracksInSupply.get(region.getId())));
+        }
+        return lstSupplied;
     }
 
     private void supplyTradeCities() {
-        final List<TradeCity> lstTradeCity = tradeCityManagerBean.listByGame(thisGame);
-        for (final TradeCity tradeCity : lstTradeCity) {
-            if (tradeCity.getPosition().getRegion().getId() == EUROPE) {
-                final Sector sector = sectorsArray[EUROPE][tradeCity.getPosition().getX() + 1][tradeCity.getPosition().getY() + 1];
+        for (final SupplySector tradeCity : tradeCities) {
+            final SupplySector sector = sectorsArray[EUROPE][tradeCity.getPosX() + 1][tradeCity.getPosY() + 1];
 
-                if (sector != null && sector.getNation().getId() == thisOwner.getId()) {
-                    // Compute single-source shortest paths for this source of supply
-                    final BellmanFordShortestPath<Sector, SimpleEdge> bfsp = new BellmanFordShortestPath<Sector, SimpleEdge>(sectorsGraph, sector);
+            if (sector != null && sector.getOwnerId() == ownerId) {
+                // Update Set
+                supplySources.add(sector);
 
-                    // Update Map
-                    supplySources.put(sector, bfsp);
+                // Update lists
+                barracksInSupply.get(sector.getRegionId()).add(sector);
+                suppliedSectors.add(sector.getKey());
+            }
+        }
+    }
+
+    private void supplyHomeBarracks() {
+        for (final SupplySector barrack : ownBarracks) {
+            if (barrack.getRegionId() == EUROPE) {
+                final SupplySector sector = sectorsArray[EUROPE][barrack.getPosX() + 1][barrack.getPosY() + 1];
+                if (sector != null && getSphere(sector) == 1 && !supplySources.contains(sector)) {
+                    // Update Set
+                    supplySources.add(sector);
 
                     // Update lists
-                    barracksInSupply.get(sector.getPosition().getRegion()).add(sector);
+                    barracksInSupply.get(sector.getRegionId()).add(sector);
+                    suppliedSectors.add(sector.getKey());
                 }
             }
         }
     }
 
-    private void supplyHomeBarracks() {
-        final List<Barrack> lstBarracks = barrackManagerBean.listByGameNation(thisGame, thisOwner);
-        for (final Barrack barrack : lstBarracks) {
-            if (barrack.getPosition().getRegion().getId() == EUROPE) {
-                final Sector sector = sectorsArray[EUROPE][barrack.getPosition().getX() + 1][barrack.getPosition().getY() + 1];
-                if (sector != null && getSphere(sector, thisOwner) == 1 && !supplySources.containsKey(sector)) {
-                    // Compute single-source shortest paths for this source of supply
-                    final BellmanFordShortestPath<Sector, SimpleEdge> bfsp = new BellmanFordShortestPath<Sector, SimpleEdge>(sectorsGraph, sector);
+    /**
+     * Identify the sectors of Europe that can be reached from any source of supply, with a single
+     * breadth-first search that starts from all the sources at once.
+     * If the budget runs out, the sectors not yet visited are considered unreachable.
+     */
+    private void labelSupplyNetwork() {
+        final GridGraph graph = sectorsGraph[EUROPE];
+        supplyNetwork = new BitSet(graph.size());
+
+        final int[] queue = new int[graph.size()];
+        int head = 0;
+        int tail = 0;
+        for (final SupplySector source : supplySources) {
+            final int index = getIndex(source);
+            if (!supplyNetwork.get(index)) {
+                supplyNetwork.set(index);
+                queue[tail++] = index;
+            }
+        }
 
-                    // Update Map
-                    supplySources.put(sector, bfsp);
+        while (head < tail) {
+            if ((head & 0xFF) == 0 && isExhausted()) {
+                return;
+            }
 
-                    // Update lists
-                    barracksInSupply.get(sector.getPosition().getRegion()).add(sector);
+            final int vertex = queue[head++];
+            for (int direction = 0; direction < GridGraph.DIRECTIONS; direction++) {
+                if (graph.hasEdge(vertex, direction)) {
+                    final int target = graph.neighbour(vertex, direction);
+                    if (!supplyNetwork.get(target)) {
+                        supplyNetwork.set(target);
+                        queue[tail++] = target;
+                    }
                 }
             }
         }
     }
 
     private void supplyBarracks() {
+        // Identify the sectors connected with the sources of supply
+        labelSupplyNetwork();
+
         // Examine each barrack to identify if it is in supply
-        final List<Barrack> lstBarracks = barrackManagerBean.listByGameNation(thisGame, thisOwner);
-        for (final Barrack barrack : lstBarracks) {
-            final Sector sector = sectorsArray[barrack.getPosition().getRegion().getId()][barrack.getPosition().getX() + 1][barrack.getPosition().getY() + 1];
+        for (final SupplySector barrack : ownBarracks) {
+            final SupplySector sector = sectorsArray[barrack.getRegionId()][barrack.getPosX() + 1][barrack.getPosY() + 1];
+            boolean notSupplied = isNotSupplied(barrack);
 
-            if (barrack.getPosition().getRegion().getId() != EUROPE) {
+            if (barrack.getRegionId() != EUROPE) {
                 // Supply in the colonies
                 // All barracks / depots are considered supply sources, regardless of their position
                 // (i.e. they do not need to trace a path to another friendly controlled barrack)
-                barrack.setNotSupplied(false);
+                notSupplied = false;
 
             } else {
 
                 if (sector == null) {
 
                     // Player does not support any source of supply
-                    barrack.setNotSupplied(true);
-
-                    final Sector sectorRecheck = sectorManagerBean.getByPosition(barrack.getPosition());
+                    notSupplied = true;
 
                     // Update lists
-                    barracksNotInSupply.get(barrack.getPosition().getRegion()).add(sectorRecheck);
+                    barracksNotInSupply.get(barrack.getRegionId()).add(barrack);
 
 
-                } else if (supplySources.containsKey(sector)) {
+                } else if (supplySources.contains(sector)) {
                     // skip this barrack
 
                 } else if (supplySources.isEmpty()) {
                     // Player does not support any source of supply
-                    barrack.setNotSupplied(true);
+                    notSupplied = true;
 
                     // Update lists
-                    barracksNotInSupply.get(barrack.getPosition().getRegion()).add(sector);
+                    barracksNotInSupply.get(barrack.getRegionId()).add(sector);
 
                 } else {
-                    // Assume that it is not supplied, unless an uninterrupted access is found.
-                    barrack.setNotSupplied(true);
-
                     // A barrack is considered a supply source if there is an uninterrupted access
                     // from the home nation or any foreign occupied trade city all the way to the barrack.
-                    try {
-                        for (final BellmanFordShortestPath<Sector, SimpleEdge> source : supplySources.values()) {
-                            if (source.getPathEdgeList(sector) != null) {
-                                // A path exists
-                                barrack.setNotSupplied(false);
-                                break;
-                            }
-                        }
+                    notSupplied = !supplyNetwork.get(getIndex(sector));
 
-                    } catch (Exception ex) {
-                        LOGGER.debug("No path found connecting " + sector.getPosition().toString() + " with " + barrack.getPosition().toString());
+                    if (notSupplied) {
+                        LOGGER.debug("No path found connecting the barrack at " + barrack.getPosX() + "/" + barrack.getPosY() + " with the sources of supply");
                     }
                 }
             }
 
             // Update lists
-            if (barrack.getNotSupplied()) {
-                barracksNotInSupply.get(barrack.getPosition().getRegion()).add(sector);
+            setNotSupplied(barrack, notSupplied);
+            if (notSupplied) {
+                barracksNotInSupply.get(barrack.getRegionId()).add(sector);
 
             } else {
-                barracksInSupply.get(barrack.getPosition().getRegion()).add(sector);
+                barracksInSupply.get(barrack.getRegionId()).add(sector);
+                if (sector != null) {
+                    suppliedSectors.add(sector.getKey());
+                }
             }
         }
     }
 
+    /**
+     * Compute the distance of each sector from the supplied barracks of its region.
+     */
+    private void setupSupplyDistances() {
+        for (final int regionId : regionIds) {
+            final List<SupplySector> supplied = barracksInSupply.get(regionId);
+            final DistanceCalculator regionCalc = distCalc[regionId];
+            if (supplied != null && regionCalc != null) {
+                regionCalc.setupSupplyDistances(getIndices(supplied, regionCalc), SUPPLY_RANGE, budget);
+            }
+        }
+    }
+
+    /**
+     * Examine the barracks that are not supplied, until no further change is made.
+     * Each barrack that becomes supplied extends the supply distances of its region from that barrack only,
+     * and the barracks whose sectors are reached by the extension become supplied in turn. The barracks that are
+     * not supplied are indexed by the cell of their sector, so that they are found from the cells reached.
+     */
     private void reexamineNotSupplied() {
-        int totChanges = 1;
-        final Set<Sector> changedSectors = new HashSet<Sector>();
-        final List<Region> lstRegion = regionManagerBean.list();
-        while (totChanges != 0 && !barracksNotInSupply.isEmpty()) {
-            totChanges = 0;
-            // Examine all not supplied barracks
-            for (final Region region : lstRegion) {
-                final List<Sector> notSupplied = barracksNotInSupply.get(region);
-                if (notSupplied.isEmpty()) {
-                    // Skip this region
-                    continue;
-                }
+        for (final int regionId : regionIds) {
+            final List<SupplySector> notSupplied = barracksNotInSupply.get(regionId);
+            final List<SupplySector> supplied = barracksInSupply.get(regionId);
+            final DistanceCalculator regionCalc = distCalc[regionId];
+            if (notSupplied.isEmpty() || supplied.isEmpty() || regionCalc == null) {
+                // No way to find supply route -- skip this region
+                continue;
+            }
+
+            if (!regionCalc.hasSupplyDistances()) {
+                regionCalc.setupSupplyDistances(getIndices(supplied, regionCalc), SUPPLY_RANGE, budget);
+            }
 
-                final List<Sector> supplied = barracksInSupply.get(region);
-                if (supplied.isEmpty()) {
-                    // No way to find supply route -- skip this region
+            // The barracks that became supplied and whose range is not yet part of the supply distances
+            final Deque<SupplySector> worklist = new ArrayDeque<SupplySector>();
+            final Set<SupplySector> covered = new HashSet<SupplySector>();
+            final Map<Integer, List<SupplySector>> waiting = new HashMap<Integer, List<SupplySector>>();
+            for (final SupplySector sector : notSupplied) {
+                if (sector == null) {
                     continue;
                 }
 
-                final DistanceCalculator regionCalc = distCalc.get(region);
+                final int index = regionCalc.getIndex(sector.getPosX(), sector.getPosY());
+                if (regionCalc.isInSupply(index)) {
+                    supplyCoveredBarrack(sector, supplied, covered, worklist);
 
-                for (final Sector sector : notSupplied) {
-                    if (sector != null) {
-                        final Barrack barrack = barrackManagerBean.getByPosition(sector.getPosition());
-                        try {
-                            final boolean result = regionCalc.pathExists(sector, supplied, 40);
-                            if (result) {
-                                // Barrack is in supply range
-                                changedSectors.add(sector);
-                                supplied.add(sector);
-
-                                barrack.setNotSupplied(false);
-                                totChanges++;
-                            }
-                        } catch (Exception ex) {
-                            // barrack not in supply.
-                        }
+                } else {
+                    List<SupplySector> cellBarracks = waiting.get(index);
+                    if (cellBarracks == null) {
+                        cellBarracks = new ArrayList<SupplySector>();
+                        waiting.put(index, cellBarracks);
                     }
+                    cellBarracks.add(sector);
                 }
+            }
 
-                for (final Sector sector : changedSectors) {
-                    notSupplied.remove(sector);
+            while (!worklist.isEmpty() && !isExhausted()) {
+                final SupplySector source = worklist.removeFirst();
+                for (final int index : regionCalc.addSupplySource(regionCalc.getIndex(source.getPosX(), source.getPosY()))) {
+                    final List<SupplySector> cellBarracks = waiting.remove(index);
+                    if (cellBarracks != null) {
+                        for (final SupplySector sector : cellBarracks) {
+                            supplyCoveredBarrack(sector, supplied, covered, worklist);
+                        }
+                    }
                 }
             }
+
+            notSupplied.removeAll(covered);
+        }
+    }
+
+    /**
+     * Mark as supplied a barrack that is within range of the supply distances.
+     *
+     * @param sector   the sector of the barrack.
+     * @param supplied the barracks of the region that are supplied.
+     * @param covered  the barracks that are within range, to be removed from the barracks that are not supplied.
+     * @param worklist the barracks that became supplied, to be used as supply sources.
+     */
+    private void supplyCoveredBarrack(final SupplySector sector,
+                                      final List<SupplySector> supplied,
+                                      final Set<SupplySector> covered,
+                                      final Deque<SupplySector> worklist) {
+        // Barrack is in supply range
+        covered.add(sector);
+        if (suppliedSectors.add(sector.getKey())) {
+            supplied.add(sector);
+            worklist.addLast(sector);
+
+            final SupplySector barrack = ownBarracksByPosition.get(sector.getKey());
+            if (barrack != null) {
+                setNotSupplied(barrack, false);
+            }
         }
     }
 
     private void reportNotSupplied() {
-        final List<Region> lstRegion = regionManagerBean.list();
-        for (final Region region : lstRegion) {
+        for (final int regionId : regionIds) {
 
             // Update flags for not Supplied barracks
-            final List<Sector> notSupplied = barracksNotInSupply.get(region);
+            final List<SupplySector> notSupplied = barracksNotInSupply.get(regionId);
             if (!notSupplied.isEmpty()) {
-                for (final Sector sector : notSupplied) {
+                for (final SupplySector sector : notSupplied) {
                     if (sector != null) {
-                        final Barrack barrack = barrackManagerBean.getByPosition(sector.getPosition());
+                        final Barrack barrack = getBarrack(sector.getPosition());
                         barrack.setNotSupplied(true);
                         barrackManagerBean.update(barrack);
 
@@ -613,12 +1117,14 @@ public class SupplyLinesConnectivity
                 }
 
                 // Update flags for Supplied barracks
-                final List<Sector> supplied = barracksInSupply.get(region);
-                for (final Sector sector : supplied) {
-                    final Barrack barrack = barrackManagerBean.getByPosition(sector.getPosition());
-                    if (barrack != null) {
-                        barrack.setNotSupplied(false);
-                        barrackManagerBean.update(barrack);
+                final List<SupplySector> supplied = barracksInSupply.get(regionId);
+                for (final SupplySector sector : supplied) {
+                    if (sector != null) {
+                        final Barrack barrack = getBarrack(sector.getPosition());
+                        if (barrack != null) {
+                            barrack.setNotSupplied(false);
+                            barrackManagerBean.update(barrack);
+                        }
                     }
                 }
             }
@@ -626,29 +1132,26 @@ public class SupplyLinesConnectivity
     }
 
     /**
-     * Identify if sector is a home region, inside sphere of influence, or outside of the receiving nation.
+     * Identify if sector is a home region, inside sphere of influence, or outside of the owner.
      *
-     * @param sector   the sector to examine.
-     * @param receiver the receiving nation.
+     * @param sector the sector to examine.
      * @return 1 if home region, 2 if in sphere of influence, 3 if outside.
      */
-    private int getSphere(final Sector sector, final Nation receiver) {
-        if (sector == null || String.valueOf(sector.getPoliticalSphere()).length() == 0) {
+    private int getSphere(final SupplySector sector) {
+        if (sector == null || sector.getPoliticalSphere().length() == 0) {
             return 3;
         }
 
-        final char thisNationCodeLower = String.valueOf(receiver.getCode()).toLowerCase().charAt(0);
-        final char thisSectorCodeLower = String.valueOf(sector.getPoliticalSphere()).toLowerCase().charAt(0);
+        final char thisSectorCodeLower = sector.getPoliticalSphere().toLowerCase().charAt(0);
         int sphere = 1;
 
         // Check if this is not home region
-        if (thisNationCodeLower != thisSectorCodeLower) {
+        if (ownerCode != thisSectorCodeLower) {
             sphere = 2;
 
-            final char thisNationCode = String.valueOf(receiver.getCode()).toLowerCase().charAt(0);
-
             // Check if this is outside sphere of influence
-            if (sector.getNation().getSphereOfInfluence().toLowerCase().indexOf(thisNationCode) < 0) {
+            if (sector.getSphereOfInfluence() == null
+                    || sector.getSphereOfInfluence().toLowerCase().indexOf(ownerCode) < 0) {
                 sphere = 3;
             }
         }
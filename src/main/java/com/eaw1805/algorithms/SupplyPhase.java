@@ -0,0 +1,163 @@
+package com.eaw1805.algorithms;
+
+import com.eaw1805.data.managers.beans.BarrackManagerBean;
+import com.eaw1805.data.managers.beans.RegionManagerBean;
+import com.eaw1805.data.managers.beans.RelationsManagerBean;
+import com.eaw1805.data.managers.beans.SectorManagerBean;
+import com.eaw1805.data.managers.beans.TradeCityManagerBean;
+import com.eaw1805.data.model.Engine;
+import com.eaw1805.data.model.Nation;
+import com.eaw1805.data.model.map.Region;
+import com.eaw1805.data.model.orders.PatrolOrderDetails;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Computes the supply lines of all nations in parallel.
+ * The data of the turn are loaded once into a {@link SupplySnapshot}. The connectivity of each nation is then
+ * prepared by the calling thread, since the patrols are examined with the random generator of the engine,
+ * the supply lines of the nations are computed in parallel over the values read into the snapshot, without
+ * following the associations of the entities, and finally the results are applied to the barracks by the calling
+ * thread, in the order of the nations.
+ */
+public class SupplyPhase {
+
+    /**
+     * a log4j logger to print messages.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(SupplyPhase.class);
+
+    /**
+     * The supply lines of each nation, keyed by the identity of the nation, in the order they are examined.
+     */
+    private final transient Map<Integer, SupplyLinesConnectivity> connectivity;
+
+    /**
+     * The pool used for computing the supply lines in parallel.
+     */
+    private transient ForkJoinPool pool;
+
+    /**
+     * Default constructor.
+     *
+     * @param gEngine          the instance of the Game Engine.
+     * @param nations          the nations to examine, with the distance calculators of each region.
+     * @param activePatrols    the active patrol orders.
+     * @param relationsManager the relations manager bean.
+     * @param sectorManager    the sector manager bean.
+     * @param regionManager    the region manager bean.
+     * @param barrackManager   the barrack manager bean.
+     * @param tradeCityManager the trade city manager bean.
+     */
+    public SupplyPhase(final Engine gEngine,
+                       final Map<Nation, Map<Region, DistanceCalculator>> nations,
+                       final Map<Integer, PatrolOrderDetails> activePatrols,
+                       final RelationsManagerBean relationsManager,
+                       final SectorManagerBean sectorManager,
+                       final RegionManagerBean regionManager,
+                       final BarrackManagerBean barrackManager,
+                       final TradeCityManagerBean tradeCityManager) {
+        final SupplySnapshot snapshot = new SupplySnapshot(gEngine, relationsManager, sectorManager,
+                regionManager, barrackManager, tradeCityManager);
+
+        connectivity = new LinkedHashMap<Integer, SupplyLinesConnectivity>();
+        for (final Map.Entry<Nation, Map<Region, DistanceCalculator>> entry : nations.entrySet()) {
+            connectivity.put(entry.getKey().getId(), new SupplyLinesConnectivity(gEngine, entry.getKey(), entry.getValue(),
+                    activePatrols, snapshot, relationsManager, sectorManager, regionManager, barrackManager, tradeCityManager));
+        }
+    }
+
+    /**
+     * Set the pool used for computing the supply lines in parallel.
+     * If not set, the common pool is used. The pool is never shut down by this class.
+     *
+     * @param forkJoinPool the pool to use.
+     */
+    public void setPool(final ForkJoinPool forkJoinPool) {
+        pool = forkJoinPool;
+    }
+
+    /**
+     * Get the supply lines of the nation, e.g. for checking the supply of its units.
+     *
+     * @param nation the nation.
+     * @return the supply lines of the nation, or null if the nation was not examined.
+     */
+    public SupplyLinesConnectivity getConnectivity(final Nation nation) {
+        return connectivity.get(nation.getId());
+    }
+
+    /**
+     * Compute the supply lines of all nations in parallel, without modifying the barracks.
+     * If the supply lines of any nation cannot be computed the phase fails, since the barracks of that nation
+     * would otherwise keep the supply state of the previous turn.
+     *
+     * @param budget the budget of the searches, or null if they are not limited. Each nation uses its own part of
+     *               the budget, so that the result of a nation is truncated only if its own searches stopped early.
+     * @return the supply state of the barracks of each nation, in the order of the nations.
+     * @throws IllegalStateException if the supply lines of a nation could not be computed.
+     */
+    public List<SupplyResult> resolve(final SearchBudget budget) {
+        final List<Callable<SupplyResult>> tasks = new ArrayList<Callable<SupplyResult>>();
+        for (final SupplyLinesConnectivity nationSupply : connectivity.values()) {
+            tasks.add(new Callable<SupplyResult>() {
+                public SupplyResult call() {
+                    return nationSupply.resolveSupply(budget);
+                }
+            });
+        }
+
+        final ForkJoinPool executor = (pool == null) ? ForkJoinPool.commonPool() : pool;
+        final List<Integer> nationIds = new ArrayList<Integer>(connectivity.keySet());
+        final List<SupplyResult> results = new ArrayList<SupplyResult>();
+        RuntimeException failure = null;
+        int pos = 0;
+        for (final Future<SupplyResult> future : executor.invokeAll(tasks)) {
+            final int nationId = nationIds.get(pos++);
+            try {
+                results.add(future.get());
+
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Supply lines computation interrupted", ex);
+
+            } catch (ExecutionException ex) {
+                LOGGER.error("Supply lines computation failed for nation " + nationId, ex.getCause());
+                if (failure == null) {
+                    failure = new IllegalStateException("Supply lines computation failed for nation " + nationId, ex.getCause());
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+
+        return results;
+    }
+
+    /**
+     * Apply the supply state of each nation to the barracks and report the barracks that are not supplied.
+     * The barracks of the nations whose result is truncated keep their supply state.
+     *
+     * @param results the supply state of the barracks of each nation.
+     */
+    public void commit(final List<SupplyResult> results) {
+        for (final SupplyResult result : results) {
+            final SupplyLinesConnectivity nationSupply = connectivity.get(result.getNationId());
+            if (nationSupply != null) {
+                nationSupply.commitSupply(result);
+            }
+        }
+    }
+
+}
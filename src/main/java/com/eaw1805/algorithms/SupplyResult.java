@@ -0,0 +1,68 @@
+package com.eaw1805.algorithms;
+
+import com.eaw1805.data.model.map.Position;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The supply state of the barracks of a nation, as computed by {@link SupplyLinesConnectivity#resolveSupply(SearchBudget)}
+ * before it is applied to the barracks.
+ */
+public class SupplyResult {
+
+    /**
+     * The identity of the nation.
+     */
+    private final int nationId;
+
+    /**
+     * If the computation stopped before completing.
+     */
+    private final boolean truncated;
+
+    /**
+     * The positions of the barracks that are supplied.
+     */
+    private final List<Position> suppliedBarracks;
+
+    /**
+     * The positions of the barracks that are not supplied.
+     */
+    private final List<Position> notSuppliedBarracks;
+
+    /**
+     * Default constructor.
+     *
+     * @param nationId            the identity of the nation.
+     * @param truncated           if the computation stopped before completing.
+     * @param suppliedBarracks    the positions of the barracks that are supplied.
+     * @param notSuppliedBarracks the positions of the barracks that are not supplied.
+     */
+    public SupplyResult(final int nationId,
+                        final boolean truncated,
+                        final List<Position> suppliedBarracks,
+                        final List<Position> notSuppliedBarracks) {
+        this.nationId = nationId;
+        this.truncated = truncated;
+        this.suppliedBarracks = Collections.unmodifiableList(suppliedBarracks);
+        this.notSuppliedBarracks = Collections.unmodifiableList(notSuppliedBarracks);
+    }
+
+    public int getNationId() {
+        return nationId;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public List<Position> getSuppliedBarracks() {
+        return suppliedBarracks;
+    }
+
+    public List<Position> getNotSuppliedBarracks() {
+        return notSuppliedBarracks;
+    }
+
+}
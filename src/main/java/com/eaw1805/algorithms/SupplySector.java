@@ -0,0 +1,204 @@
+package com.eaw1805.algorithms;
+
+import com.eaw1805.data.model.Nation;
+import com.eaw1805.data.model.map.Barrack;
+import com.eaw1805.data.model.map.Position;
+import com.eaw1805.data.model.map.Sector;
+
+/**
+ * The values of a sector that are examined when computing the supply lines, read from the entities by the
+ * thread that loads them. The supply lines of many nations can then be computed in parallel without following
+ * any association of the entities, which are kept only for applying the results.
+ * Two instances are equal if they refer to the same position.
+ */
+public class SupplySector {
+
+    /**
+     * The sector, or null if the sector of the barrack is not known.
+     */
+    private final transient Sector sector;
+
+    /**
+     * The barrack located at the sector, or null if there is none.
+     */
+    private final transient Barrack barrack;
+
+    /**
+     * The position of the sector.
+     */
+    private final transient Position position;
+
+    /**
+     * The identity of the region.
+     */
+    private final int regionId;
+
+    /**
+     * The X coordinate of the sector.
+     */
+    private final int posX;
+
+    /**
+     * The Y coordinate of the sector.
+     */
+    private final int posY;
+
+    /**
+     * The identity of the terrain, or -1 if the sector is not known.
+     */
+    private final int terrainId;
+
+    /**
+     * The identity of the owner, or -1 if the sector is not known or not owned.
+     */
+    private final int ownerId;
+
+    /**
+     * The political sphere of the sector.
+     */
+    private final String politicalSphere;
+
+    /**
+     * The sphere of influence of the owner, or null if the sector is not known or not owned.
+     */
+    private final String sphereOfInfluence;
+
+    /**
+     * If the sector has a barrack.
+     */
+    private final boolean hasBarrack;
+
+    /**
+     * If the barrack was not supplied when the sector was loaded.
+     */
+    private final boolean notSupplied;
+
+    /**
+     * Default constructor.
+     *
+     * @param thisSector  the sector, or null if only the barrack is known.
+     * @param thisBarrack the barrack located at the sector, or null if there is none.
+     */
+    public SupplySector(final Sector thisSector, final Barrack thisBarrack) {
+        sector = thisSector;
+        barrack = thisBarrack;
+        position = (thisSector == null) ? thisBarrack.getPosition() : thisSector.getPosition();
+        regionId = position.getRegion().getId();
+        posX = position.getX();
+        posY = position.getY();
+        notSupplied = thisBarrack != null && thisBarrack.getNotSupplied();
+
+        if (thisSector == null) {
+            terrainId = -1;
+            ownerId = -1;
+            politicalSphere = "";
+            sphereOfInfluence = null;
+            hasBarrack = false;
+
+        } else {
+            final Nation owner = thisSector.getNation();
+            terrainId = thisSector.getTerrain().getId();
+            ownerId = (owner == null) ? -1 : owner.getId();
+            politicalSphere = String.valueOf(thisSector.getPoliticalSphere());
+            sphereOfInfluence = (owner == null) ? null : owner.getSphereOfInfluence();
+            hasBarrack = thisSector.hasBarrack();
+        }
+    }
+
+    public Sector getSector() {
+        return sector;
+    }
+
+    public Barrack getBarrack() {
+        return barrack;
+    }
+
+    public Position getPosition() {
+        return position;
+    }
+
+    public int getRegionId() {
+        return regionId;
+    }
+
+    public int getPosX() {
+        return posX;
+    }
+
+    public int getPosY() {
+        return posY;
+    }
+
+    public int getTerrainId() {
+        return terrainId;
+    }
+
+    public int getOwnerId() {
+        return ownerId;
+    }
+
+    public String getPoliticalSphere() {
+        return politicalSphere;
+    }
+
+    public String getSphereOfInfluence() {
+        return sphereOfInfluence;
+    }
+
+    public boolean hasBarrack() {
+        return hasBarrack;
+    }
+
+    public boolean getNotSupplied() {
+        return notSupplied;
+    }
+
+    /**
+     * Get the key of the position of the sector.
+     *
+     * @return the key of the position.
+     */
+    public long getKey() {
+        return getKey(regionId, posX, posY);
+    }
+
+    /**
+     * Combine the region and the coordinates of a position.
+     *
+     * @param regionId the identity of the region.
+     * @param posX     the X coordinate.
+     * @param posY     the Y coordinate.
+     * @return the key of the position.
+     */
+    public static long getKey(final int regionId, final int posX, final int posY) {
+        return ((long) regionId << 32) | ((long) (posX & 0xFFFF) << 16) | (posY & 0xFFFF);
+    }
+
+    /**
+     * Combine the region and the coordinates of the position.
+     *
+     * @param thisPosition the position.
+     * @return the key of the position.
+     */
+    public static long getKey(final Position thisPosition) {
+        return getKey(thisPosition.getRegion().getId(), thisPosition.getX(), thisPosition.getY());
+    }
+
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (!(obj instanceof SupplySector)) {
+            return false;
+        }
+
+        final SupplySector other = (SupplySector) obj;
+        return regionId == other.regionId && posX == other.posX && posY == other.posY;
+    }
+
+    public int hashCode() {
+        return Long.valueOf(getKey()).hashCode();
+    }
+
+}
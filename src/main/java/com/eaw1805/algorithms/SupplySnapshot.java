@@ -0,0 +1,230 @@
+package com.eaw1805.algorithms;
+
+import com.eaw1805.data.constants.RegionConstants;
+import com.eaw1805.data.managers.beans.BarrackManagerBean;
+import com.eaw1805.data.managers.beans.RegionManagerBean;
+import com.eaw1805.data.managers.beans.RelationsManagerBean;
+import com.eaw1805.data.managers.beans.SectorManagerBean;
+import com.eaw1805.data.managers.beans.TradeCityManagerBean;
+import com.eaw1805.data.model.Engine;
+import com.eaw1805.data.model.Game;
+import com.eaw1805.data.model.Nation;
+import com.eaw1805.data.model.NationsRelation;
+import com.eaw1805.data.model.economy.TradeCity;
+import com.eaw1805.data.model.map.Barrack;
+import com.eaw1805.data.model.map.Position;
+import com.eaw1805.data.model.map.Region;
+import com.eaw1805.data.model.map.Sector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The data of a turn that are examined when computing the supply lines, loaded once for all nations.
+ * The values of the sectors, barracks and relations are read from the entities by the thread that loads the
+ * snapshot, so that the supply lines of the nations can be computed in parallel without accessing the database
+ * or following the associations of the entities. The snapshot is not modified after it is loaded.
+ */
+public class SupplySnapshot
+        implements RegionConstants {
+
+    /**
+     * The value returned for the relations that are not known.
+     */
+    public static final int NO_RELATION = -1;
+
+    /**
+     * The regions of the game.
+     */
+    private final transient List<Region> regions;
+
+    /**
+     * The sea sectors of Europe.
+     */
+    private final transient List<SupplySector> seaSectors;
+
+    /**
+     * The sectors of the trade cities of Europe.
+     */
+    private final transient List<SupplySector> tradeCitySectors;
+
+    /**
+     * The sectors owned by each nation, keyed by the identity of the nation.
+     */
+    private final transient Map<Integer, List<SupplySector>> sectors;
+
+    /**
+     * The sectors of the barracks owned by each nation, keyed by the identity of the nation.
+     */
+    private final transient Map<Integer, List<SupplySector>> barracks;
+
+    /**
+     * The relations of each nation towards the others, keyed by the identities of the two nations.
+     */
+    private final transient Map<Integer, Map<Integer, Integer>> relations;
+
+    /**
+     * The sectors of the game, keyed by their position.
+     */
+    private final transient Map<Long, SupplySector> sectorsByPosition;
+
+    /**
+     * Load the data of the current turn of the game.
+     *
+     * @param gEngine          the instance of the Game Engine.
+     * @param relationsManager the relations manager bean.
+     * @param sectorManager    the sector manager bean.
+     * @param regionManager    the region manager bean.
+     * @param barrackManager   the barrack manager bean.
+     * @param tradeCityManager the trade city manager bean.
+     */
+    public SupplySnapshot(final Engine gEngine,
+                          final RelationsManagerBean relationsManager,
+                          final SectorManagerBean sectorManager,
+                          final RegionManagerBean regionManager,
+                          final BarrackManagerBean barrackManager,
+                          final TradeCityManagerBean tradeCityManager) {
+        final Game thisGame = gEngine.getGame();
+        final List<Nation> lstNations = gEngine.getAliveNations();
+
+        regions = Collections.unmodifiableList(regionManager.list());
+
+        // The barracks are attached to the sectors where they are located
+        final Map<Long, Barrack> barracksByPosition = new HashMap<Long, Barrack>();
+        final Map<Integer, List<Barrack>> nationBarracks = new HashMap<Integer, List<Barrack>>();
+        for (final Nation nation : lstNations) {
+            final List<Barrack> lstBarracks = barrackManager.listByGameNation(thisGame, nation);
+            nationBarracks.put(nation.getId(), lstBarracks);
+            for (final Barrack barrack : lstBarracks) {
+                barracksByPosition.put(SupplySector.getKey(barrack.getPosition()), barrack);
+            }
+        }
+
+        sectorsByPosition = new HashMap<Long, SupplySector>();
+        for (final Region region : regions) {
+            for (final Sector sector : sectorManager.listByGameRegion(thisGame, region)) {
+                final long key = SupplySector.getKey(sector.getPosition());
+                sectorsByPosition.put(key, new SupplySector(sector, barracksByPosition.get(key)));
+            }
+        }
+
+        seaSectors = Collections.unmodifiableList(toSupplySectors(
+                sectorManager.listSeaByGameRegion(thisGame, regionManager.getByID(EUROPE), false), barracksByPosition));
+
+        final List<SupplySector> lstTradeCities = new ArrayList<SupplySector>();
+        for (final TradeCity tradeCity : tradeCityManager.listByGame(thisGame)) {
+            if (tradeCity.getPosition().getRegion().getId() == EUROPE) {
+                final SupplySector sector = sectorsByPosition.get(SupplySector.getKey(tradeCity.getPosition()));
+                if (sector != null) {
+                    lstTradeCities.add(sector);
+                }
+            }
+        }
+        tradeCitySectors = Collections.unmodifiableList(lstTradeCities);
+
+        sectors = new HashMap<Integer, List<SupplySector>>();
+        barracks = new HashMap<Integer, List<SupplySector>>();
+        relations = new HashMap<Integer, Map<Integer, Integer>>();
+        for (final Nation nation : lstNations) {
+            sectors.put(nation.getId(), Collections.unmodifiableList(toSupplySectors(
+                    sectorManager.listByGameNation(thisGame, nation), barracksByPosition)));
+
+            final List<SupplySector> lstBarracks = new ArrayList<SupplySector>();
+            for (final Barrack barrack : nationBarracks.get(nation.getId())) {
+                final SupplySector sector = sectorsByPosition.get(SupplySector.getKey(barrack.getPosition()));
+                lstBarracks.add((sector == null || sector.getBarrack() != barrack) ? new SupplySector(null, barrack) : sector);
+            }
+            barracks.put(nation.getId(), Collections.unmodifiableList(lstBarracks));
+
+            final Map<Integer, Integer> nationRelations = new HashMap<Integer, Integer>();
+            for (final NationsRelation relation : relationsManager.listByGameNation(thisGame, nation)) {
+                nationRelations.put(relation.getTarget().getId(), relation.getRelation());
+            }
+            relations.put(nation.getId(), nationRelations);
+        }
+    }
+
+    /**
+     * Read the values of the sectors, reusing those already read.
+     *
+     * @param lstSectors         the sectors.
+     * @param barracksByPosition the barracks of the game, keyed by their position.
+     * @return the values of the sectors.
+     */
+    private List<SupplySector> toSupplySectors(final List<Sector> lstSectors, final Map<Long, Barrack> barracksByPosition) {
+        final List<SupplySector> lstSupply = new ArrayList<SupplySector>(lstSectors.size());
+        for (final Sector sector : lstSectors) {
+            final long key = SupplySector.getKey(sector.getPosition());
+            SupplySector supplySector = sectorsByPosition.get(key);
+            if (supplySector == null) {
+                supplySector = new SupplySector(sector, barracksByPosition.get(key));
+            }
+            lstSupply.add(supplySector);
+        }
+        return lstSupply;
+    }
+
+    public List<Region> getRegions() {
+        return regions;
+    }
+
+    public List<SupplySector> getSeaSectors() {
+        return seaSectors;
+    }
+
+    public List<SupplySector> getTradeCitySectors() {
+        return tradeCitySectors;
+    }
+
+    /**
+     * Get the sectors owned by the nation.
+     *
+     * @param nation the nation.
+     * @return the sectors of the nation, or an empty list if the nation was not alive when the snapshot was loaded.
+     */
+    public List<SupplySector> getSectors(final Nation nation) {
+        final List<SupplySector> lstSectors = sectors.get(nation.getId());
+        return (lstSectors == null) ? Collections.<SupplySector>emptyList() : lstSectors;
+    }
+
+    /**
+     * Get the sectors of the barracks owned by the nation, each one with its barrack attached.
+     *
+     * @param nation the nation.
+     * @return the barracks of the nation, or an empty list if the nation was not alive when the snapshot was loaded.
+     */
+    public List<SupplySector> getBarracks(final Nation nation) {
+        final List<SupplySector> lstBarracks = barracks.get(nation.getId());
+        return (lstBarracks == null) ? Collections.<SupplySector>emptyList() : lstBarracks;
+    }
+
+    /**
+     * Get the sector at the given position.
+     *
+     * @param position the position of the sector.
+     * @return the sector, or null if it does not exist.
+     */
+    public SupplySector getSector(final Position position) {
+        return sectorsByPosition.get(SupplySector.getKey(position));
+    }
+
+    /**
+     * Get the relation of a nation towards another.
+     *
+     * @param nation the nation that holds the relation.
+     * @param target the nation that the relation refers to.
+     * @return the relation, or NO_RELATION if it is not known.
+     */
+    public int getRelation(final Nation nation, final Nation target) {
+        final Map<Integer, Integer> nationRelations = relations.get(nation.getId());
+        if (nationRelations == null || !nationRelations.containsKey(target.getId())) {
+            return NO_RELATION;
+        }
+
+        return nationRelations.get(target.getId());
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.eaw1805.algorithms;
+
+import com.eaw1805.data.HibernateUtil;
+import com.eaw1805.data.constants.RegionConstants;
+import com.eaw1805.data.constants.TerrainConstants;
+import com.eaw1805.data.managers.beans.SectorManagerBean;
+import com.eaw1805.data.model.Game;
+import com.eaw1805.data.model.map.Region;
+import com.eaw1805.data.model.map.Sector;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+
+/**
+ * The terrain-weighted graph of a region, without any restriction that depends on the nation examined.
+ * The graph is built once per region and turn and is shared by the distance calculators of all nations, that
+ * exclude the sectors occupied by their enemies via a mask. It must not be modified after it is built.
+ */
+public class TerrainGraph
+        implements RegionConstants, TerrainConstants {
+
+    /**
+     * a log4j logger to print messages.
+     */
+    private static final Logger LOGGER = LogManager.getLogger(TerrainGraph.class);
+
+    /**
+     * Stores the graph for computing the movement cost.
+     */
+    private final transient GridGraph movementGraph;
+
+    /**
+     * Stores the sectors for easy access.
+     */
+    private final transient Sector[][] sectorsArray;
+
+    /**
+     * Default constructor.
+     *
+     * @param game          the Game to investigate.
+     * @param region        the Region to investigate.
+     * @param sectorManager the sector manager bean.
+     */
+    public TerrainGraph(final Game game,
+                        final Region region,
+                        final SectorManagerBean sectorManager) {
+        final int regionSizeX, regionSizeY;
+        switch (game.getScenarioId()) {
+            case HibernateUtil.DB_FREE:
+                regionSizeX = REGION_1804_MAX_X + 2;
+                regionSizeY = REGION_1804_MAX_Y + 2;
+                break;
+
+            case HibernateUtil.DB_S3:
+                regionSizeX = REGION_1808_MAX_X + 2;
+                regionSizeY = REGION_1808_MAX_Y + 2;
+                break;
+
+            case HibernateUtil.DB_S1:
+            case HibernateUtil.DB_S2:
+            default:
+                regionSizeX = REGION_1805_MAX_X + 2;
+                regionSizeY = REGION_1805_MAX_Y + 2;
+                break;
+        }
+        movementGraph = new GridGraph(regionSizeX, regionSizeY);
+        sectorsArray = new Sector[regionSizeX][regionSizeY];
+
+        LOGGER.debug("Building terrain graph of " + region.getName());
+
+        // First pass, add all sectors
+        final List<Sector> lstSectors = sectorManager.listByGameRegion(game, region);
+        for (final Sector sector : lstSectors) {
+            // Ignore Ocean & Impassable tiles
+            if (sector.getTerrain().getId() != TERRAIN_O
+                    && sector.getTerrain().getId() != TERRAIN_I) {
+                final int mpCost;
+                if (sector.getPosition().getRegion().getId() == EUROPE) {
+                    mpCost = sector.getTerrain().getMps();
+
+                } else {
+                    mpCost = 2 * sector.getTerrain().getMps();
+                }
+
+                movementGraph.addVertex(getIndex(sector), mpCost);
+            }
+            sectorsArray[sector.getPosition().getX() + 1][sector.getPosition().getY() + 1] = sector;
+        }
+
+        // Second pass, Add the edges of the graph
+        for (int index = 0; index < movementGraph.size(); index++) {
+            if (movementGraph.containsVertex(index)) {
+                movementGraph.connectNeighbours(index);
+            }
+        }
+    }
+
+    public GridGraph getMovementGraph() {
+        return movementGraph;
+    }
+
+    /**
+     * Get the index of the sector in the movement graph.
+     *
+     * @param sector the sector to examine.
+     * @return the index of the sector, or -1 if it lies outside the region.
+     */
+    public int getIndex(final Sector sector) {
+        return movementGraph.index(sector.getPosition().getX() + 1, sector.getPosition().getY() + 1);
+    }
+
+    /**
+     * Get the sector at the given coordinates.
+     *
+     * @param posX the X coordinate of the sector.
+     * @param posY the Y coordinate of the sector.
+     * @return the sector, or null if it lies outside the region.
+     */
+    public Sector getSector(final int posX, final int posY) {
+        if (movementGraph.index(posX + 1, posY + 1) < 0) {
+            return null;
+        }
+
+        return sectorsArray[posX + 1][posY + 1];
+    }
+
+}
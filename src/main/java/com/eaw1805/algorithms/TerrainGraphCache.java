@@ -0,0 +1,129 @@
+package com.eaw1805.algorithms;
+
+import com.eaw1805.data.managers.beans.SectorManagerBean;
+import com.eaw1805.data.model.Game;
+import com.eaw1805.data.model.map.Region;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the terrain graph of each region during a turn, so that it is built once and shared by all nations.
+ * An instance is created by the engine for each turn it processes and passed to the distance calculators, so that
+ * the sectors loaded in the session of the turn are not kept after it. The least recently used graphs are evicted
+ * when the cache is full. The graphs are dropped via {@link #invalidate()} if the sectors change while the turn is
+ * processed.
+ */
+public class TerrainGraphCache {
+
+    /**
+     * The default maximum number of graphs kept.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 8;
+
+    /**
+     * The game examined.
+     */
+    private final transient Game thisGame;
+
+    /**
+     * The sector manager bean.
+     */
+    private final transient SectorManagerBean sectorManagerBean;
+
+    /**
+     * The maximum number of graphs kept.
+     */
+    private final int maxEntries;
+
+    /**
+     * The graphs kept, keyed by the identity of the region, in access order.
+     */
+    private final LinkedHashMap<Integer, TerrainGraph> entries;
+
+    /**
+     * The number of times the graphs were dropped, used to detect changes made while a graph is built.
+     */
+    private long totInvalidations;
+
+    /**
+     * Default constructor.
+     *
+     * @param game          the Game to investigate.
+     * @param sectorManager the sector manager bean.
+     */
+    public TerrainGraphCache(final Game game, final SectorManagerBean sectorManager) {
+        this(game, sectorManager, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Constructor that sets the size of the cache.
+     *
+     * @param game          the Game to investigate.
+     * @param sectorManager the sector manager bean.
+     * @param maxEntries    the maximum number of graphs kept.
+     */
+    public TerrainGraphCache(final Game game, final SectorManagerBean sectorManager, final int maxEntries) {
+        thisGame = game;
+        sectorManagerBean = sectorManager;
+        this.maxEntries = maxEntries;
+        entries = new LinkedHashMap<Integer, TerrainGraph>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            protected boolean removeEldestEntry(final Map.Entry<Integer, TerrainGraph> eldest) {
+                return size() > TerrainGraphCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get the terrain graph of the region, building it if it is not already cached.
+     *
+     * @param region the region to examine.
+     * @return the terrain graph.
+     */
+    public TerrainGraph getGraph(final Region region) {
+        final long invalidationsSeen;
+        synchronized (this) {
+            final TerrainGraph cached = entries.get(region.getId());
+            if (cached != null) {
+                return cached;
+            }
+            invalidationsSeen = totInvalidations;
+        }
+
+        // Build the graph without holding the lock
+        final TerrainGraph graph = new TerrainGraph(thisGame, region, sectorManagerBean);
+
+        synchronized (this) {
+            final TerrainGraph cached = entries.get(region.getId());
+            if (cached != null) {
+                // Another thread built the same graph in the meantime
+                return cached;
+            }
+
+            if (invalidationsSeen == totInvalidations) {
+                entries.put(region.getId(), graph);
+            }
+        }
+
+        return graph;
+    }
+
+    /**
+     * Drop all the graphs, for example because the terrain of some sectors has changed.
+     */
+    public synchronized void invalidate() {
+        entries.clear();
+        totInvalidations++;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.eaw1805.algorithms;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the heuristic of the A* search is admissible, i.e. that it finds the same costs as Dial's algorithm.
+ */
+public class AStarShortestPathTest {
+
+    @Test
+    public void matchesDial() {
+        final Random random = new Random(1805);
+        for (int round = 0; round < 30; round++) {
+            final GridGraph graph = TestGraphs.randomGrid(random, 40, 30, 1 + random.nextInt(12), 0.25);
+            final int source = TestGraphs.randomVertex(random, graph);
+            final int maxCost = (round % 2 == 0) ? Integer.MAX_VALUE : 10 + random.nextInt(80);
+            final DialShortestPath dial = new DialShortestPath(graph, source, maxCost, Integer.MAX_VALUE);
+
+            for (int pair = 0; pair < 20; pair++) {
+                final int target = TestGraphs.randomVertex(random, graph);
+                final AStarShortestPath search = new AStarShortestPath(graph, source, target, maxCost);
+                assertEquals(dial.getCost(target), search.getCost());
+
+                final int[] path = search.getPath();
+                if (dial.getCost(target) == DialShortestPath.UNREACHABLE) {
+                    assertNull(path);
+
+                } else {
+                    assertEquals(source, path[0]);
+                    assertEquals(target, path[path.length - 1]);
+                    assertEquals(search.getCost(), TestGraphs.pathCost(graph, path));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void expandsFewerCells() {
+        // On a uniform grid the heuristic is exact, so only the cells along the way are expanded
+        final GridGraph graph = new GridGraph(50, 50);
+        for (int index = 0; index < graph.size(); index++) {
+            graph.addVertex(index, 3);
+        }
+        for (int index = 0; index < graph.size(); index++) {
+            graph.connectNeighbours(index);
+        }
+
+        final AStarShortestPath search = new AStarShortestPath(graph, graph.index(0, 0), graph.index(49, 0),
+                Integer.MAX_VALUE);
+        assertEquals(3 * 49, search.getCost());
+        assertTrue(search.getTotExpanded() < graph.size() / 2);
+    }
+
+}
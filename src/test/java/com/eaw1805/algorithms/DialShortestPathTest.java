@@ -0,0 +1,156 @@
+package com.eaw1805.algorithms;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the bucket queue of Dial's algorithm against a reference search.
+ */
+public class DialShortestPathTest {
+
+    @Test
+    public void costsWrapAroundBuckets() {
+        // A single row where each cell costs 9, so the costs exceed the 10 buckets many times over
+        final GridGraph graph = new GridGraph(20, 1);
+        for (int index = 0; index < graph.size(); index++) {
+            graph.addVertex(index, 9);
+        }
+        for (int index = 0; index < graph.size(); index++) {
+            graph.connectNeighbours(index);
+        }
+
+        final DialShortestPath search = new DialShortestPath(graph, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        for (int index = 0; index < graph.size(); index++) {
+            assertEquals(9 * index, search.getCost(index));
+        }
+        assertEquals(20, search.getPath(19).length);
+    }
+
+    @Test
+    public void cheaperLongerPath() {
+        // The direct cell costs 9 while the detour over the other row costs 1 per cell
+        final GridGraph graph = new GridGraph(3, 2);
+        graph.addVertex(graph.index(0, 0), 1);
+        graph.addVertex(graph.index(1, 0), 9);
+        graph.addVertex(graph.index(2, 0), 1);
+        graph.addVertex(graph.index(1, 1), 1);
+        for (int index = 0; index < graph.size(); index++) {
+            if (graph.containsVertex(index)) {
+                graph.connectNeighbours(index);
+            }
+        }
+
+        final DialShortestPath search = new DialShortestPath(graph, graph.index(0, 0), Integer.MAX_VALUE,
+                Integer.MAX_VALUE);
+        assertEquals(2, search.getCost(graph.index(2, 0)));
+        assertArrayEquals(new int[]{graph.index(0, 0), graph.index(1, 1), graph.index(2, 0)},
+                search.getPath(graph.index(2, 0)));
+    }
+
+    @Test
+    public void matchesReference() {
+        final Random random = new Random(1805);
+        for (int round = 0; round < 50; round++) {
+            final GridGraph graph = TestGraphs.randomGrid(random, 30, 25, 1 + random.nextInt(12), 0.2);
+            final int source = TestGraphs.randomVertex(random, graph);
+            final int maxCost = (round % 2 == 0) ? Integer.MAX_VALUE : 10 + random.nextInt(60);
+
+            final DialShortestPath search = new DialShortestPath(graph, source, maxCost, Integer.MAX_VALUE);
+            final int[] expected = TestGraphs.referenceCosts(graph, new int[]{source}, maxCost);
+            for (int index = 0; index < graph.size(); index++) {
+                assertEquals(expected[index], search.getCost(index));
+                if (expected[index] == DialShortestPath.UNREACHABLE) {
+                    assertNull(search.getPath(index));
+
+                } else {
+                    final int[] path = search.getPath(index);
+                    assertEquals(source, path[0]);
+                    assertEquals(expected[index], TestGraphs.pathCost(graph, path));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void maxHopsLimitsCheapestPaths() {
+        final Random random = new Random(18);
+        final GridGraph graph = TestGraphs.randomGrid(random, 20, 20, 6, 0.1);
+        final int source = TestGraphs.randomVertex(random, graph);
+
+        final DialShortestPath search = new DialShortestPath(graph, source, Integer.MAX_VALUE, 4);
+        for (int index = 0; index < graph.size(); index++) {
+            final int[] path = search.getPath(index);
+            if (path != null) {
+                assertTrue(path.length - 1 <= 4);
+            }
+        }
+    }
+
+    @Test
+    public void addSourceMatchesFreshSearch() {
+        final Random random = new Random(1815);
+        for (int round = 0; round < 50; round++) {
+            final GridGraph graph = TestGraphs.randomGrid(random, 30, 25, 1 + random.nextInt(12), 0.2);
+            final int first = TestGraphs.randomVertex(random, graph);
+            final int second = TestGraphs.randomVertex(random, graph);
+            final int maxCost = (round % 2 == 0) ? Integer.MAX_VALUE : 10 + random.nextInt(60);
+
+            final DialShortestPath search = new DialShortestPath(graph, first, maxCost, Integer.MAX_VALUE);
+            final int[] before = new int[graph.size()];
+            for (int index = 0; index < graph.size(); index++) {
+                before[index] = search.getCost(index);
+            }
+
+            final int[] changed = search.addSource(second);
+            final int[] expected = TestGraphs.referenceCosts(graph, new int[]{first, second}, maxCost);
+
+            int totDropped = 0;
+            for (int index = 0; index < graph.size(); index++) {
+                assertEquals(expected[index], search.getCost(index));
+                if (expected[index] < before[index]) {
+                    totDropped++;
+                }
+            }
+
+            // Only the cells whose cost dropped are reported, in increasing order of their new cost
+            assertEquals(totDropped, changed.length);
+            for (int pos = 0; pos < changed.length; pos++) {
+                assertTrue(search.getCost(changed[pos]) < before[changed[pos]]);
+                if (pos > 0) {
+                    assertTrue(search.getCost(changed[pos - 1]) <= search.getCost(changed[pos]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void addSourceAlreadyReached() {
+        final Random random = new Random(1812);
+        final GridGraph graph = TestGraphs.randomGrid(random, 10, 10, 5, 0.0);
+        final int source = graph.index(5, 5);
+
+        final DialShortestPath search = new DialShortestPath(graph, source, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        assertEquals(0, search.addSource(source).length);
+    }
+
+    @Test
+    public void cancelledBudgetIsTruncated() {
+        final Random random = new Random(1806);
+        final GridGraph graph = TestGraphs.randomGrid(random, 10, 10, 5, 0.0);
+        final SearchBudget budget = new SearchBudget();
+        budget.cancel();
+
+        final DialShortestPath search = new DialShortestPath(graph, 0, Integer.MAX_VALUE, Integer.MAX_VALUE, budget);
+        assertTrue(budget.isTruncated());
+        for (int index = 1; index < graph.size(); index++) {
+            assertEquals(DialShortestPath.UNREACHABLE, search.getCost(index));
+        }
+    }
+
+}
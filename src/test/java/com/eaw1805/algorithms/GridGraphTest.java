@@ -0,0 +1,117 @@
+package com.eaw1805.algorithms;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the indexing and the edges of the grid graph.
+ */
+public class GridGraphTest {
+
+    @Test
+    public void indexRoundTrip() {
+        final GridGraph graph = new GridGraph(7, 5);
+        for (int posX = 0; posX < 7; posX++) {
+            for (int posY = 0; posY < 5; posY++) {
+                final int index = graph.index(posX, posY);
+                assertEquals(posX * 5 + posY, index);
+                assertEquals(posX, graph.getX(index));
+                assertEquals(posY, graph.getY(index));
+            }
+        }
+    }
+
+    @Test
+    public void indexOutsideGrid() {
+        final GridGraph graph = new GridGraph(7, 5);
+        assertEquals(-1, graph.index(-1, 0));
+        assertEquals(-1, graph.index(0, -1));
+        assertEquals(-1, graph.index(7, 0));
+        assertEquals(-1, graph.index(0, 5));
+    }
+
+    @Test
+    public void oppositeDirections() {
+        for (int direction = 0; direction < GridGraph.DIRECTIONS; direction++) {
+            final int opposite = GridGraph.opposite(direction);
+            assertEquals(-GridGraph.deltaX(direction), GridGraph.deltaX(opposite));
+            assertEquals(-GridGraph.deltaY(direction), GridGraph.deltaY(opposite));
+            assertEquals(direction, GridGraph.opposite(opposite));
+        }
+    }
+
+    @Test
+    public void neighbourAndDirection() {
+        final GridGraph graph = new GridGraph(3, 3);
+        final int centre = graph.index(1, 1);
+        for (int direction = 0; direction < GridGraph.DIRECTIONS; direction++) {
+            final int thatIndex = graph.neighbour(centre, direction);
+            assertEquals(1 + GridGraph.deltaX(direction), graph.getX(thatIndex));
+            assertEquals(1 + GridGraph.deltaY(direction), graph.getY(thatIndex));
+            assertEquals(direction, graph.direction(centre, thatIndex));
+            assertEquals(GridGraph.opposite(direction), graph.direction(thatIndex, centre));
+        }
+
+        // The corner has neighbours on one side only
+        final int corner = graph.index(0, 0);
+        for (int direction = 0; direction < GridGraph.DIRECTIONS; direction++) {
+            final boolean inside = GridGraph.deltaX(direction) >= 0 && GridGraph.deltaY(direction) >= 0;
+            assertEquals(inside, graph.neighbour(corner, direction) >= 0);
+        }
+    }
+
+    @Test
+    public void connectAndRemoveVertex() {
+        final GridGraph graph = new GridGraph(3, 3);
+        for (int index = 0; index < graph.size(); index++) {
+            graph.addVertex(index, 1 + index);
+        }
+        for (int index = 0; index < graph.size(); index++) {
+            graph.connectNeighbours(index);
+        }
+
+        assertEquals(9, graph.getTotVertices());
+        assertEquals(9, graph.getMaxCost());
+        assertEquals(1, graph.getMinCost());
+
+        final int centre = graph.index(1, 1);
+        for (int direction = 0; direction < GridGraph.DIRECTIONS; direction++) {
+            final int thatIndex = graph.neighbour(centre, direction);
+            assertTrue(graph.hasEdge(centre, direction));
+            assertTrue(graph.hasEdge(thatIndex, GridGraph.opposite(direction)));
+        }
+
+        graph.removeVertex(centre);
+        assertFalse(graph.containsVertex(centre));
+        assertEquals(8, graph.getTotVertices());
+        for (int direction = 0; direction < GridGraph.DIRECTIONS; direction++) {
+            final int thatIndex = graph.neighbour(centre, direction);
+            assertFalse(graph.hasEdge(centre, direction));
+            assertFalse(graph.hasEdge(thatIndex, GridGraph.opposite(direction)));
+        }
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        final GridGraph graph = new GridGraph(2, 2);
+        for (int index = 0; index < graph.size(); index++) {
+            graph.addVertex(index, 2);
+        }
+        for (int index = 0; index < graph.size(); index++) {
+            graph.connectNeighbours(index);
+        }
+
+        final GridGraph copy = new GridGraph(graph);
+        copy.removeVertex(0);
+        copy.setCost(1, 5);
+
+        assertTrue(graph.containsVertex(0));
+        assertEquals(2, graph.getCost(1));
+        assertTrue(graph.hasEdge(1, graph.direction(1, 0)));
+        assertFalse(copy.hasEdge(1, copy.direction(1, 0)));
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.eaw1805.algorithms;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Builds random grid graphs and computes reference shortest paths for the tests.
+ */
+final class TestGraphs {
+
+    private TestGraphs() {
+        // Utility class
+    }
+
+    /**
+     * Build a grid where some cells are missing and each vertex is connected to all neighbouring vertices.
+     *
+     * @param random    the random generator.
+     * @param sizeX     the horizontal size of the grid.
+     * @param sizeY     the vertical size of the grid.
+     * @param maxWeight the maximum cost of entering a cell, at least 1.
+     * @param holes     the fraction of missing cells.
+     * @return the new graph.
+     */
+    static GridGraph randomGrid(final Random random,
+                                final int sizeX,
+                                final int sizeY,
+                                final int maxWeight,
+                                final double holes) {
+        final GridGraph graph = new GridGraph(sizeX, sizeY);
+        for (int index = 0; index < graph.size(); index++) {
+            if (random.nextDouble() >= holes) {
+                graph.addVertex(index, 1 + random.nextInt(maxWeight));
+            }
+        }
+        for (int index = 0; index < graph.size(); index++) {
+            if (graph.containsVertex(index)) {
+                graph.connectNeighbours(index);
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Pick a random vertex of the graph.
+     *
+     * @param random the random generator.
+     * @param graph  the graph.
+     * @return the index of the vertex.
+     */
+    static int randomVertex(final Random random, final GridGraph graph) {
+        while (true) {
+            final int index = random.nextInt(graph.size());
+            if (graph.containsVertex(index)) {
+                return index;
+            }
+        }
+    }
+
+    /**
+     * Compute the cost of the shortest path from the nearest source to each cell by relaxing all the edges
+     * until no cost drops.
+     *
+     * @param graph   the graph.
+     * @param sources the indices of the starting cells.
+     * @param maxCost the maximum cost of the paths.
+     * @return the costs, UNREACHABLE for the cells that are not reachable within the maximum cost.
+     */
+    static int[] referenceCosts(final GridGraph graph, final int[] sources, final int maxCost) {
+        final int[] costs = new int[graph.size()];
+        Arrays.fill(costs, DialShortestPath.UNREACHABLE);
+        for (final int source : sources) {
+            costs[source] = 0;
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int index = 0; index < graph.size(); index++) {
+                if (costs[index] == DialShortestPath.UNREACHABLE) {
+                    continue;
+                }
+
+                for (int direction = 0; direction < GridGraph.DIRECTIONS; direction++) {
+                    if (!graph.hasEdge(index, direction)) {
+                        continue;
+                    }
+
+                    final int thatIndex = graph.neighbour(index, direction);
+                    final int newCost = costs[index] + graph.getCost(thatIndex);
+                    if (newCost <= maxCost && newCost < costs[thatIndex]) {
+                        costs[thatIndex] = newCost;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        return costs;
+    }
+
+    /**
+     * Compute the cost of a path and check that it follows the edges of the graph.
+     *
+     * @param graph the graph.
+     * @param path  the indices of the cells starting from the source.
+     * @return the cost of entering all the cells after the source, or -1 if an edge is missing.
+     */
+    static int pathCost(final GridGraph graph, final int[] path) {
+        int cost = 0;
+        for (int pos = 1; pos < path.length; pos++) {
+            final int direction = graph.direction(path[pos - 1], path[pos]);
+            if (direction < 0 || !graph.hasEdge(path[pos - 1], direction)) {
+                return -1;
+            }
+            cost += graph.getCost(path[pos]);
+        }
+        return cost;
+    }
+
+}